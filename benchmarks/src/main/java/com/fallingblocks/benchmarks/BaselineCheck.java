@@ -0,0 +1,73 @@
+package com.fallingblocks.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Compares a JMH JSON result file against the committed baseline and fails on regressions.
+// Usage: BaselineCheck <baseline.json> <results.json> [allowed slowdown percent, default 15]
+public class BaselineCheck {
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+    private static final Pattern SCORE = Pattern.compile("\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.eE]+)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <baseline.json> <results.json> [allowed slowdown percent]");
+            System.exit(2);
+        }
+        double allowed = args.length > 2 ? Double.parseDouble(args[2]) : 15.0;
+        Map<String, Double> baseline = readScores(Path.of(args[0]));
+        Map<String, Double> results = readScores(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW   %-70s %12.3f%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+            // every benchmark reports average time, so higher is slower
+            double change = (entry.getValue() - before) / before * 100.0;
+            boolean regressed = change > allowed;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-5s %-70s %12.3f -> %12.3f (%+.1f%%)%n",
+                regressed ? "SLOW" : "OK", entry.getKey(), before, entry.getValue(), change);
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the baseline by more than " + allowed + "%");
+            System.exit(1);
+        }
+    }
+
+    // benchmark name plus parameters mapped to the primary score, in file order
+    private static Map<String, Double> readScores(Path file) throws IOException {
+        String json = Files.readString(file);
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Matcher benchmark = BENCHMARK.matcher(json);
+        int start = benchmark.find() ? benchmark.start() : -1;
+        while (start >= 0) {
+            String name = benchmark.group(1);
+            int end = benchmark.find() ? benchmark.start() : json.length();
+            String entry = json.substring(start, end);
+
+            Matcher params = PARAMS.matcher(entry);
+            if (params.find()) {
+                name += " {" + params.group(1).replaceAll("[\\s\"]", "") + "}";
+            }
+            Matcher score = SCORE.matcher(entry);
+            if (score.find()) {
+                scores.put(name, Double.parseDouble(score.group(1)));
+            }
+            start = end < json.length() ? end : -1;
+        }
+        return scores;
+    }
+}
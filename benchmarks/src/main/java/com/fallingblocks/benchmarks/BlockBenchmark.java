@@ -0,0 +1,38 @@
+package com.fallingblocks.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fallingblocks.engine.Block;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Rotation cost, including reading the new shape the way the board does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockBenchmark {
+    private final Block block = new Block(5);
+
+    @Benchmark
+    public int[] rotate() {
+        block.rotate();
+        return block.getRowMasks();
+    }
+
+    @Benchmark
+    public int[] rotateBack() {
+        block.rotateBack();
+        return block.getRowMasks();
+    }
+}
@@ -0,0 +1,53 @@
+package com.fallingblocks.benchmarks;
+
+import com.fallingblocks.engine.FastRandom;
+import com.fallingblocks.engine.Playfield;
+
+// Realistic boards the benchmarks run against, generated from a fixed seed
+public enum BoardFixture {
+    // nothing locked yet
+    EMPTY(0, 0),
+    // bottom half filled with a ragged, holey stack
+    HALF(10, 70),
+    // bottom rows of versus garbage: full except one hole per row
+    GARBAGE(12, 100),
+    // stack reaching three rows below the spawn area
+    NEAR_TOP_OUT(17, 75);
+
+    private static final long SEED = 0x5EEDL;
+
+    private final int filledRows;
+    private final int density;
+
+    BoardFixture(int filledRows, int density) {
+        this.filledRows = filledRows;
+        this.density = density;
+    }
+
+    // fills the playfield with this fixture; no row is ever left full
+    public void fill(Playfield playfield) {
+        playfield.clear();
+        FastRandom random = new FastRandom(SEED + ordinal());
+        int width = playfield.getWidth();
+        int height = playfield.getHeight();
+        for (int y = height - filledRows; y < height; y++) {
+            int hole = random.nextInt(width);
+            for (int x = 0; x < width; x++) {
+                if (x != hole && random.nextInt(100) < density) {
+                    playfield.set(x, y, 1 + random.nextInt(7));
+                }
+            }
+        }
+    }
+
+    // fills the holes of the bottom rows so the next clear has work to do
+    public static void completeBottomRows(Playfield playfield, int rows) {
+        for (int y = playfield.getHeight() - rows; y < playfield.getHeight(); y++) {
+            for (int x = 0; x < playfield.getWidth(); x++) {
+                if (!playfield.isOccupied(x, y)) {
+                    playfield.set(x, y, 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.fallingblocks.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fallingblocks.BoardRenderer;
+import com.fallingblocks.GameBoard;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Each renderer drawing each fixture, laid out as GameBoard lays it out.
+// draw is a typical frame (the piece moved one column), redrawAll repaints every layer.
+// Uses the software pipeline so Canvas commands can be recorded without a display.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dprism.order=sw")
+@State(Scope.Thread)
+public class DrawBenchmark {
+    @Param({"EMPTY", "HALF", "GARBAGE", "NEAR_TOP_OUT"})
+    public BoardFixture board;
+
+    @Param({"canvas", "pixelbuffer"})
+    public String renderer;
+
+    private final Map<Integer, int[][]> opponentGrids = Map.of();
+    private GameEngine engine;
+    private BoardRenderer boardRenderer;
+    private boolean movedLeft;
+
+    @Setup
+    public void setup() {
+        engine = new GameEngine(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT, 1);
+        board.fill(engine.getPlayfield());
+        boardRenderer = GameBoard.createRenderer(renderer);
+        boardRenderer.render(engine, opponentGrids, false);
+    }
+
+    @Benchmark
+    public void draw() {
+        // sidestep back and forth so every frame has something to repaint
+        engine.step(movedLeft ? Input.RIGHT : Input.LEFT);
+        movedLeft = !movedLeft;
+        boardRenderer.render(engine, opponentGrids, false);
+    }
+
+    @Benchmark
+    public void redrawAll() {
+        boardRenderer.invalidate();
+        boardRenderer.render(engine, opponentGrids, false);
+    }
+}
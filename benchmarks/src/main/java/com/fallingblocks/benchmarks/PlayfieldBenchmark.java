@@ -0,0 +1,93 @@
+package com.fallingblocks.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Playfield;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Collision, drop position and line clears on each board fixture
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayfieldBenchmark {
+    @Param({"EMPTY", "HALF", "GARBAGE", "NEAR_TOP_OUT"})
+    public BoardFixture board;
+
+    private Playfield template;
+    private Playfield playfield;
+    private GameEngine engine;
+    private Block[] blocks;
+
+    @Setup
+    public void setup() {
+        template = new Playfield(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT);
+        board.fill(template);
+        playfield = new Playfield(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT);
+        playfield.copyFrom(template);
+
+        engine = new GameEngine(1);
+        engine.getPlayfield().copyFrom(template);
+
+        // every piece in every rotation, just above the stack
+        blocks = new Block[Block.TYPE_COUNT * Block.ROTATION_COUNT];
+        for (int type = 0; type < Block.TYPE_COUNT; type++) {
+            for (int rotation = 0; rotation < Block.ROTATION_COUNT; rotation++) {
+                Block block = new Block(type);
+                block.setRotation(rotation);
+                blocks[type * Block.ROTATION_COUNT + rotation] = block;
+            }
+        }
+    }
+
+    // isValidPosition for every piece, rotation and column on one row
+    @Benchmark
+    public int isValidPosition() {
+        int fits = 0;
+        for (Block block : blocks) {
+            for (int x = -1; x <= GameEngine.DEFAULT_WIDTH; x++) {
+                if (playfield.fits(block.getRowMasks(), x, 8)) {
+                    fits++;
+                }
+            }
+        }
+        return fits;
+    }
+
+    // ghost and hard drop landing row for the spawned piece
+    @Benchmark
+    public int getDropPosition() {
+        return engine.getDropPosition();
+    }
+
+    // restoring the fixture alone, to subtract from clearLines
+    @Benchmark
+    public void copyBoard(Blackhole blackhole) {
+        playfield.copyFrom(template);
+        blackhole.consume(playfield);
+    }
+
+    // a four line clear on the fixture, including the copy that sets it up
+    @Benchmark
+    public int clearLines() {
+        playfield.copyFrom(template);
+        BoardFixture.completeBottomRows(playfield, 4);
+        return playfield.clearFullRows();
+    }
+}
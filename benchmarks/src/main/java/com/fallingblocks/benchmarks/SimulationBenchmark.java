@@ -0,0 +1,64 @@
+package com.fallingblocks.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fallingblocks.engine.FastRandom;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// End to end: N pieces through the engine with seeded random inputs, restarting on top out
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final int PIECES = 1000;
+    private static final Input[] MOVES = {Input.LEFT, Input.RIGHT, Input.ROTATE, Input.SOFT_DROP, Input.HOLD};
+
+    @Param({"1"})
+    public long seed;
+
+    private GameEngine engine;
+    private FastRandom random;
+
+    @Setup
+    public void setup() {
+        engine = new GameEngine(seed);
+        random = new FastRandom(seed);
+    }
+
+    // reported per piece
+    @Benchmark
+    @OperationsPerInvocation(PIECES)
+    public int simulatePieces() {
+        for (int i = 0; i < PIECES; i++) {
+            if (engine.isGameOver()) {
+                engine.reset();
+            }
+            int moves = random.nextInt(8);
+            for (int m = 0; m < moves; m++) {
+                engine.step(MOVES[random.nextInt(MOVES.length)]);
+                if (random.nextInt(4) == 0) {
+                    engine.tick();
+                }
+            }
+            engine.step(Input.HARD_DROP);
+        }
+        return engine.getScore();
+    }
+}
@@ -0,0 +1,266 @@
+package com.fallingblocks.engine;
+
+// Importing the Arrays class from the java.util package
+import java.util.Arrays;
+
+// Block class for the falling blocks game
+public class Block {
+    private static final int[][][] SHAPES = {
+        // I shape
+        {
+            {1, 1, 1, 1}
+        },
+        // J shape
+        {
+            {2, 0, 0},
+            {2, 2, 2}
+        },
+        // L shape
+        {
+            {0, 0, 3},
+            {3, 3, 3}
+        },
+        // O shape
+        {
+            {4, 4},
+            {4, 4}
+        },
+        // S shape
+        {
+            {0, 5, 5},
+            {5, 5, 0}
+        },
+        // T shape
+        {
+            {0, 6, 0},
+            {6, 6, 6}
+        },
+        // Z shape
+        {
+            {7, 7, 0},
+            {0, 7, 7}
+        }
+    };
+
+    // every rotation state is computed once and shared by all blocks
+    public static final int TYPE_COUNT = SHAPES.length;
+    public static final int ROTATION_COUNT = 4;
+    private static final int[][][][] ROTATIONS = new int[TYPE_COUNT][ROTATION_COUNT][][];
+    private static final int[][][] ROW_MASKS = new int[TYPE_COUNT][ROTATION_COUNT][];
+    private static final int[][] WIDTHS = new int[TYPE_COUNT][ROTATION_COUNT];
+    private static final int[][] HEIGHTS = new int[TYPE_COUNT][ROTATION_COUNT];
+    // lowest filled row of each shape column, the profile that lands first when dropping
+    private static final int[][][] BOTTOMS = new int[TYPE_COUNT][ROTATION_COUNT][];
+    // horizontal offsets tried, in order, when rotating into a state collides
+    private static final int[][][] KICKS = new int[TYPE_COUNT][ROTATION_COUNT][];
+    private static final int[] DEFAULT_KICKS = {-1, 1, -2, 2, -3, 3};
+    private static final int[] NO_KICKS = {};
+
+    static {
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            int[][] shape = SHAPES[type];
+            for (int rotation = 0; rotation < ROTATION_COUNT; rotation++) {
+                ROTATIONS[type][rotation] = shape;
+                ROW_MASKS[type][rotation] = toRowMasks(shape);
+                WIDTHS[type][rotation] = shape[0].length;
+                HEIGHTS[type][rotation] = shape.length;
+                BOTTOMS[type][rotation] = toBottoms(shape);
+                int[][] rotated = rotateClockwise(shape);
+                // a shape that looks the same after rotating (the O piece) never needs a kick
+                KICKS[type][rotation] = Arrays.deepEquals(shape, rotated) ? NO_KICKS : DEFAULT_KICKS;
+                shape = rotated;
+            }
+        }
+    }
+
+    // shape variables
+    private int type;
+    private int rotation;
+    private int x, y;
+
+    // creates a block of the given type (0 to TYPE_COUNT - 1) in its spawn position
+    public Block(int type) {
+        reset(type);
+    }
+
+    // turns this block into a fresh one of the given type, so spawning needs no allocation
+    public void reset(int newType) {
+        type = newType;
+        rotation = 0;
+        x = 3;
+        y = 0;
+    }
+
+    // movement methods
+    public void moveLeft() {
+        x--;
+    }
+
+    public void moveRight() {
+        x++;
+    }
+
+    public void moveDown() {
+        y++;
+    }
+
+    public void moveUp() {
+        y--;
+    }
+
+    // rotate
+    public void rotate() {
+        rotation = (rotation + 1) & (ROTATION_COUNT - 1);
+    }
+
+    // rotate back
+    public void rotateBack() {
+        rotation = (rotation + ROTATION_COUNT - 1) & (ROTATION_COUNT - 1);
+    }
+
+    // builds the clockwise rotation of a shape
+    private static int[][] rotateClockwise(int[][] shape) {
+        int[][] rotated = new int[shape[0].length][shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                rotated[j][shape.length - 1 - i] = shape[i][j];
+            }
+        }
+        return rotated;
+    }
+
+    // packs each shape row into a bitmask, bit j set for column j
+    private static int[] toRowMasks(int[][] shape) {
+        int[] masks = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] != 0) {
+                    masks[i] |= 1 << j;
+                }
+            }
+        }
+        return masks;
+    }
+
+    // lowest filled row in each column of a shape
+    private static int[] toBottoms(int[][] shape) {
+        int[] bottoms = new int[shape[0].length];
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] != 0) {
+                    bottoms[j] = i;
+                }
+            }
+        }
+        return bottoms;
+    }
+
+    // a copy of the shape of any piece type and rotation; hot paths use isFilled instead
+    public static int[][] shapeOf(int type, int rotation) {
+        return copyOf(ROTATIONS[type][rotation]);
+    }
+
+    // whether a shape cell is part of the piece, read straight from the shared table
+    public static boolean isFilled(int type, int rotation, int row, int column) {
+        return ROTATIONS[type][rotation][row][column] != 0;
+    }
+
+    // bounding box of any piece type and rotation
+    public static int widthOf(int type, int rotation) {
+        return WIDTHS[type][rotation];
+    }
+
+    public static int heightOf(int type, int rotation) {
+        return HEIGHTS[type][rotation];
+    }
+
+    private static int[][] copyOf(int[][] shape) {
+        int[][] copy = new int[shape.length][];
+        for (int i = 0; i < shape.length; i++) {
+            copy[i] = shape[i].clone();
+        }
+        return copy;
+    }
+
+    // row bitmasks of any piece type and rotation, shared so they must not be modified
+    public static int[] rowMasksOf(int type, int rotation) {
+        return ROW_MASKS[type][rotation];
+    }
+
+    // bottom profile of any piece type and rotation, shared like the row bitmasks
+    public static int[] bottomsOf(int type, int rotation) {
+        return BOTTOMS[type][rotation];
+    }
+
+    // wall kick offsets tried after rotating a piece type into the given rotation, also shared
+    public static int[] kicksOf(int type, int rotation) {
+        return KICKS[type][rotation];
+    }
+
+    // a copy of the current shape
+    public int[][] getShape() {
+        return copyOf(ROTATIONS[type][rotation]);
+    }
+
+    // the current shape itself, shared between blocks so it must not be modified
+    int[][] shape() {
+        return ROTATIONS[type][rotation];
+    }
+
+    // row bitmasks of the current shape, shared so they must not be modified
+    public int[] getRowMasks() {
+        return ROW_MASKS[type][rotation];
+    }
+
+    // bottom profile of the current shape, one entry per column
+    public int[] getBottoms() {
+        return BOTTOMS[type][rotation];
+    }
+
+    // wall kick offsets to try after rotating into the current state
+    public int[] getKicks() {
+        return KICKS[type][rotation];
+    }
+
+    // bounding box of the current shape
+    public int getWidth() {
+        return WIDTHS[type][rotation];
+    }
+
+    public int getHeight() {
+        return HEIGHTS[type][rotation];
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    // grid coordinates
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getColor() {
+        return type + 1;
+    }
+
+    public void setRotation(int newRotation) {
+        this.rotation = newRotation & (ROTATION_COUNT - 1);
+    }
+
+    public void setX(int newX) {
+        this.x = newX;
+    }
+
+    public void setY(int newY) {
+        this.y = newY;
+    }
+}
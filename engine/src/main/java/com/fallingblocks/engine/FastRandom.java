@@ -0,0 +1,41 @@
+package com.fallingblocks.engine;
+
+// Small seeded PRNG (SplitMix64) shared by the piece generators; its whole state is one long
+public final class FastRandom {
+    private long state;
+
+    public FastRandom(long seed) {
+        state = seed;
+    }
+
+    // next 64 random bits
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // uniform int in [0, bound) using Lemire's multiply-and-reject method
+    public int nextInt(int bound) {
+        long product = (nextLong() >>> 32) * bound;
+        long low = product & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                product = (nextLong() >>> 32) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    // the current state, enough to resume the exact same sequence later
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,352 @@
+package com.fallingblocks.engine;
+
+import java.nio.ByteBuffer;
+
+// Game rules without any UI: movement, rotation kicks, locking, line clears, scoring and hold
+public class GameEngine {
+    public static final int DEFAULT_WIDTH = 10;
+    public static final int DEFAULT_HEIGHT = 20;
+    public static final int DEFAULT_PREVIEW_SIZE = 5;
+
+    // points for clearing 1, 2, 3 or 4 lines at once
+    private static final int[] LINE_SCORES = {0, 100, 300, 500, 800};
+
+    // Game state variables
+    private final Playfield playfield;
+    private final PieceQueue pieces;
+    // both blocks are reused for the whole game so spawning and holding never allocate
+    private final Block currentBlock = new Block(0);
+    private final Block savedBlock = new Block(0);
+    private boolean hasSavedBlock;
+    private boolean canSave;
+    private int score;
+    private int linesCleared;
+    private int piecesPlaced;
+    private LineClear lastLineClear = LineClear.NONE;
+    private boolean gameOver;
+    // seed the piece sequence last started from, 0 for engines built from a generator
+    private long seed;
+
+    // creates an engine with the default board size
+    public GameEngine(long seed) {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, seed);
+    }
+
+    // creates an engine dealing pieces from a seeded 7-bag
+    public GameEngine(int width, int height, long seed) {
+        this(width, height, new SevenBagGenerator(seed), DEFAULT_PREVIEW_SIZE);
+        this.seed = seed;
+    }
+
+    // creates an engine whose piece sequence comes from the given generator
+    public GameEngine(int width, int height, PieceGenerator generator, int previewSize) {
+        playfield = new Playfield(width, height);
+        pieces = new PieceQueue(generator, previewSize);
+        reset();
+    }
+
+    // starts a new game with a fresh piece sequence from the seed
+    public void reset(long seed) {
+        this.seed = seed;
+        pieces.reset(seed);
+        reset();
+    }
+
+    // starts a new game on the same engine, continuing the piece sequence
+    public void reset() {
+        playfield.clear();
+        hasSavedBlock = false;
+        canSave = true;
+        score = 0;
+        linesCleared = 0;
+        piecesPlaced = 0;
+        lastLineClear = LineClear.NONE;
+        gameOver = false;
+        spawnNewBlock();
+    }
+
+    // applies one player input, returns false if it had no effect
+    public boolean step(Input input) {
+        if (gameOver) return false;
+
+        switch (input) {
+            case LEFT:
+                return shift(-1);
+            case RIGHT:
+                return shift(1);
+            case SOFT_DROP:
+                return moveBlockDown();
+            case ROTATE:
+                return rotate();
+            case HARD_DROP:
+                hardDrop();
+                return true;
+            case HOLD:
+                return saveBlock();
+            default:
+                return false;
+        }
+    }
+
+    // advances gravity by one row, locking the block when it cannot fall
+    public void tick() {
+        if (gameOver) return;
+
+        if (!moveBlockDown()) {
+            lockBlock();
+        }
+    }
+
+    // moves the block down
+    private boolean moveBlockDown() {
+        currentBlock.moveDown();
+        if (!playfield.fits(currentBlock)) {
+            currentBlock.moveUp();
+            return false;
+        }
+        return true;
+    }
+
+    // moves the block sideways
+    private boolean shift(int dx) {
+        currentBlock.setX(currentBlock.getX() + dx);
+        if (!playfield.fits(currentBlock)) {
+            currentBlock.setX(currentBlock.getX() - dx);
+            return false;
+        }
+        return true;
+    }
+
+    // rotates the block, trying each wall kick of the new state in turn
+    private boolean rotate() {
+        currentBlock.rotate();
+        if (playfield.fits(currentBlock)) {
+            return true;
+        }
+        for (int dx : currentBlock.getKicks()) {
+            currentBlock.setX(currentBlock.getX() + dx);
+            if (playfield.fits(currentBlock)) {
+                return true;
+            }
+            currentBlock.setX(currentBlock.getX() - dx); // revert if not valid
+        }
+        currentBlock.rotateBack(); // revert rotation if no kick works
+        return false;
+    }
+
+    // hard drops the block
+    private void hardDrop() {
+        currentBlock.setY(playfield.dropRow(currentBlock));
+        lockBlock();
+    }
+
+    // places the block, clears lines and brings in the next block
+    private void lockBlock() {
+        playfield.place(currentBlock);
+        piecesPlaced++;
+        canSave = true;
+        clearLines(currentBlock.getY(), currentBlock.getY() + currentBlock.getHeight() - 1);
+        spawnNewBlock();
+        // The game is over when the new block cannot be placed
+        if (!playfield.fits(currentBlock)) {
+            gameOver = true;
+        }
+    }
+
+    // clears the lines the block filled and adds score based on how many were cleared at once
+    private void clearLines(int fromRow, int toRow) {
+        lastLineClear = playfield.clearLines(fromRow, toRow);
+        linesCleared += lastLineClear.count();
+        score += LINE_SCORES[lastLineClear.count()];
+    }
+
+    // spawns a new block
+    private void spawnNewBlock() {
+        currentBlock.reset(pieces.poll());
+    }
+
+    // saves the block, swapping with the saved one; allowed once per placed block
+    private boolean saveBlock() {
+        if (!canSave) return false;
+
+        int type = savedBlock.getType();
+        int rotation = savedBlock.getRotation();
+        savedBlock.reset(currentBlock.getType());
+        savedBlock.setRotation(currentBlock.getRotation());
+        if (!hasSavedBlock) {
+            hasSavedBlock = true;
+            spawnNewBlock();
+        } else {
+            currentBlock.reset(type);
+            currentBlock.setRotation(rotation);
+        }
+        canSave = false;
+        return true;
+    }
+
+    // Serialized state, enough for a copy of this engine to carry on in lockstep: the piece queue
+    // is kept as its seed and the number of pieces dealt, and replayed from them on load.
+    // Only valid for engines dealing from a seeded 7-bag.
+    public static int stateSize(int width, int height) {
+        return Long.BYTES + Integer.BYTES * 4 + 2 + width * height + 6 + 3 + 2;
+    }
+
+    public void writeState(ByteBuffer out) {
+        out.putLong(seed);
+        out.putInt(pieces.getDealt());
+        out.putInt(score);
+        out.putInt(linesCleared);
+        out.putInt(piecesPlaced);
+        out.put((byte) playfield.getWidth());
+        out.put((byte) playfield.getHeight());
+        for (int y = 0; y < playfield.getHeight(); y++) {
+            for (int x = 0; x < playfield.getWidth(); x++) {
+                out.put((byte) playfield.get(x, y));
+            }
+        }
+        out.put((byte) currentBlock.getType());
+        out.put((byte) currentBlock.getRotation());
+        out.putShort((short) currentBlock.getX());
+        out.putShort((short) currentBlock.getY());
+        out.put((byte) (hasSavedBlock ? 1 : 0));
+        out.put((byte) savedBlock.getType());
+        out.put((byte) savedBlock.getRotation());
+        out.put((byte) (canSave ? 1 : 0));
+        out.put((byte) (gameOver ? 1 : 0));
+    }
+
+    // replaces this engine's state with one written by writeState on a board of the same size
+    public void readState(ByteBuffer in) {
+        long stateSeed = in.getLong();
+        int dealt = in.getInt();
+        int stateScore = in.getInt();
+        int stateLines = in.getInt();
+        int statePieces = in.getInt();
+        int width = in.get() & 0xFF;
+        int height = in.get() & 0xFF;
+        if (width != playfield.getWidth() || height != playfield.getHeight()) {
+            throw new IllegalArgumentException("State is for a " + width + "x" + height + " board");
+        }
+        seed = stateSeed;
+        pieces.restore(seed, dealt);
+        score = stateScore;
+        linesCleared = stateLines;
+        piecesPlaced = statePieces;
+        playfield.clear();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int color = in.get();
+                if (color != 0) {
+                    playfield.set(x, y, color);
+                }
+            }
+        }
+        currentBlock.reset(in.get());
+        currentBlock.setRotation(in.get());
+        currentBlock.setX(in.getShort());
+        currentBlock.setY(in.getShort());
+        hasSavedBlock = in.get() != 0;
+        savedBlock.reset(in.get());
+        savedBlock.setRotation(in.get());
+        canSave = in.get() != 0;
+        gameOver = in.get() != 0;
+        lastLineClear = LineClear.NONE;
+    }
+
+    // FNV-1a over everything writeState covers, for spotting two copies of a game drifting apart
+    public int stateHash() {
+        int hash = 0x811C9DC5;
+        for (int y = 0; y < playfield.getHeight(); y++) {
+            for (int x = 0; x < playfield.getWidth(); x++) {
+                hash = mix(hash, playfield.get(x, y));
+            }
+        }
+        hash = mix(hash, pieces.getDealt());
+        hash = mix(hash, score);
+        hash = mix(hash, linesCleared);
+        hash = mix(hash, piecesPlaced);
+        hash = mix(hash, currentBlock.getType());
+        hash = mix(hash, currentBlock.getRotation());
+        hash = mix(hash, currentBlock.getX());
+        hash = mix(hash, currentBlock.getY());
+        hash = mix(hash, hasSavedBlock ? savedBlock.getType() : -1);
+        hash = mix(hash, savedBlock.getRotation());
+        hash = mix(hash, canSave ? 1 : 0);
+        hash = mix(hash, gameOver ? 1 : 0);
+        return hash;
+    }
+
+    private static int mix(int hash, int value) {
+        return (hash ^ value) * 0x01000193;
+    }
+
+    // the locked cells with the falling block drawn in, row by row, as a board is shown to others
+    public void writeBoard(byte[] cells) {
+        int width = playfield.getWidth();
+        int height = playfield.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[y * width + x] = (byte) playfield.get(x, y);
+            }
+        }
+        if (gameOver) return;
+        int[][] shape = currentBlock.shape();
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                int y = currentBlock.getY() + i;
+                int x = currentBlock.getX() + j;
+                if (shape[i][j] != 0 && y >= 0 && y < height && x >= 0 && x < width) {
+                    cells[y * width + x] = (byte) currentBlock.getColor();
+                }
+            }
+        }
+    }
+
+    // row the current block would land on if hard dropped
+    public int getDropPosition() {
+        return playfield.dropRow(currentBlock);
+    }
+
+    public Playfield getPlayfield() {
+        return playfield;
+    }
+
+    public Block getCurrentBlock() {
+        return currentBlock;
+    }
+
+    // upcoming piece types; peek(0) spawns next
+    public PieceQueue getPieceQueue() {
+        return pieces;
+    }
+
+    // the held block, or null if nothing has been saved yet
+    public Block getSavedBlock() {
+        return hasSavedBlock ? savedBlock : null;
+    }
+
+    public boolean canSave() {
+        return canSave;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    // rows removed by the most recent lock, LineClear.NONE if it cleared nothing
+    public LineClear getLastLineClear() {
+        return lastLineClear;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
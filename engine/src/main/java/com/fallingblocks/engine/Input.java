@@ -0,0 +1,11 @@
+package com.fallingblocks.engine;
+
+// Player actions understood by GameEngine.step
+public enum Input {
+    LEFT,
+    RIGHT,
+    SOFT_DROP,
+    ROTATE,
+    HARD_DROP,
+    HOLD
+}
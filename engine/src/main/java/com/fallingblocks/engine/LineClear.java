@@ -0,0 +1,30 @@
+package com.fallingblocks.engine;
+
+// Rows removed by one lock, in board coordinates from before the clear, top to bottom
+public final class LineClear {
+    // shared result for the common case of a lock that clears nothing
+    public static final LineClear NONE = new LineClear(new int[0]);
+
+    private final int[] rows;
+
+    LineClear(int[] rows) {
+        this.rows = rows;
+    }
+
+    // number of lines cleared at once, 0 to 4
+    public int count() {
+        return rows.length;
+    }
+
+    // index of the i-th cleared row, top to bottom
+    public int row(int i) {
+        return rows[i];
+    }
+
+    public boolean contains(int row) {
+        for (int r : rows) {
+            if (r == row) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package com.fallingblocks.engine;
+
+// Source of the piece sequence; implementations must not allocate per piece
+public interface PieceGenerator {
+    // next piece type, 0 to Block.TYPE_COUNT - 1
+    int next();
+
+    // restarts the sequence from a seed
+    void reset(long seed);
+}
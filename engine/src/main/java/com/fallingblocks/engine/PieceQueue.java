@@ -0,0 +1,64 @@
+package com.fallingblocks.engine;
+
+// Fixed-size ring buffer of upcoming piece types, refilled from a generator
+public class PieceQueue {
+    private final PieceGenerator generator;
+    private final int[] upcoming;
+    private int head;
+    // pieces taken since the generator was last restarted
+    private int dealt;
+
+    public PieceQueue(PieceGenerator generator, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Preview size must be at least 1: " + size);
+        }
+        this.generator = generator;
+        this.upcoming = new int[size];
+        refill();
+    }
+
+    // restarts the generator from a seed and refills the preview
+    public void reset(long seed) {
+        generator.reset(seed);
+        refill();
+    }
+
+    // takes the next piece type and pulls a new one into the preview
+    public int poll() {
+        int type = upcoming[head];
+        upcoming[head] = generator.next();
+        head = (head + 1) % upcoming.length;
+        dealt++;
+        return type;
+    }
+
+    // restarts from a seed and deals the given number of pieces, recreating the queue of another
+    // game that started from the same seed
+    public void restore(long seed, int count) {
+        reset(seed);
+        for (int i = 0; i < count; i++) {
+            poll();
+        }
+    }
+
+    public int getDealt() {
+        return dealt;
+    }
+
+    // piece type i places ahead, 0 being the next one to spawn
+    public int peek(int i) {
+        return upcoming[(head + i) % upcoming.length];
+    }
+
+    public int size() {
+        return upcoming.length;
+    }
+
+    private void refill() {
+        head = 0;
+        dealt = 0;
+        for (int i = 0; i < upcoming.length; i++) {
+            upcoming[i] = generator.next();
+        }
+    }
+}
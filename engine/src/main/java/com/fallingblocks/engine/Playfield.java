@@ -0,0 +1,289 @@
+package com.fallingblocks.engine;
+
+import java.util.Arrays;
+
+// Bitboard playfield: one occupancy mask per row, colors kept in a flat byte array,
+// plus a per-column height map (skyline) kept up to date on every change
+public class Playfield {
+    // columns start at this bit so pieces can be shifted in without going negative
+    private static final int WALL_BITS = 4;
+    private static final int MAX_SHIFT = Integer.SIZE - WALL_BITS;
+    // a row with every bit set (walls plus all columns) is full
+    private static final int FULL_ROW = -1;
+
+    private final int width;
+    private final int height;
+    private final int emptyRow;
+    private final int[] rows;
+    private final byte[] colors;
+    // height of the topmost filled cell per column, 0 for an empty column
+    private final int[] columnHeights;
+    private int filledCells;
+    // rows removed by the last clear, reused so clearing never allocates
+    private final int[] clearedRows;
+    // range of rows changed since the renderer last looked, empty when top > bottom
+    private int dirtyTop;
+    private int dirtyBottom;
+
+    // creates an empty playfield
+    public Playfield(int width, int height) {
+        if (width <= 0 || width > Integer.SIZE - 2 * WALL_BITS) {
+            throw new IllegalArgumentException("Unsupported playfield width: " + width);
+        }
+        this.width = width;
+        this.height = height;
+        this.emptyRow = ~(((1 << width) - 1) << WALL_BITS);
+        this.rows = new int[height];
+        this.colors = new byte[width * height];
+        this.columnHeights = new int[width];
+        this.clearedRows = new int[height];
+        clear();
+    }
+
+    // empties every row
+    public void clear() {
+        Arrays.fill(rows, emptyRow);
+        Arrays.fill(colors, (byte) 0);
+        Arrays.fill(columnHeights, 0);
+        filledCells = 0;
+        markDirty(0, height - 1);
+    }
+
+    // checks if the block fits at its current position
+    public boolean fits(Block block) {
+        return fits(block.getRowMasks(), block.getX(), block.getY());
+    }
+
+    // checks if the given piece rows fit with their top-left corner at (x, y)
+    public boolean fits(int[] pieceRows, int x, int y) {
+        int shift = x + WALL_BITS;
+        if (shift < 0 || shift > MAX_SHIFT) {
+            return false;
+        }
+        for (int i = 0; i < pieceRows.length; i++) {
+            int mask = pieceRows[i];
+            if (mask == 0) {
+                continue;
+            }
+            int row = y + i;
+            if (row >= height) {
+                return false;
+            }
+            int bits = mask << shift;
+            // rows above the top only have walls
+            int occupied = row < 0 ? emptyRow : rows[row];
+            if ((occupied & bits) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // locks the block into the playfield
+    public void place(Block block) {
+        place(block.getRowMasks(), block.getX(), block.getY(), block.getColor());
+    }
+
+    // locks piece rows with their top-left corner at (x, y)
+    public void place(int[] pieceRows, int x, int y, int color) {
+        for (int i = 0; i < pieceRows.length; i++) {
+            int mask = pieceRows[i];
+            int row = y + i;
+            if (mask == 0 || row < 0 || row >= height) {
+                continue;
+            }
+            rows[row] |= mask << (x + WALL_BITS);
+            filledCells += Integer.bitCount(mask);
+            markDirty(row, row);
+            int cellHeight = height - row;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int column = x + Integer.numberOfTrailingZeros(bits);
+                colors[row * width + column] = (byte) color;
+                if (cellHeight > columnHeights[column]) {
+                    columnHeights[column] = cellHeight;
+                }
+            }
+        }
+    }
+
+    // row the piece would come to rest on if dropped straight down from (x, y).
+    // Constant time from the skyline while the piece is above every column it covers;
+    // under an overhang it falls back to stepping down one row at a time.
+    public int dropRow(int[] pieceRows, int[] bottoms, int x, int y) {
+        int distance = Integer.MAX_VALUE;
+        for (int c = 0; c < bottoms.length; c++) {
+            int lowest = y + bottoms[c];
+            int surface = height - columnHeights[x + c];
+            if (lowest >= surface) {
+                distance = -1;
+                break;
+            }
+            distance = Math.min(distance, surface - 1 - lowest);
+        }
+        if (distance >= 0) {
+            return y + distance;
+        }
+        while (fits(pieceRows, x, y + 1)) {
+            y++;
+        }
+        return y;
+    }
+
+    // row the block would land on if hard dropped
+    public int dropRow(Block block) {
+        return dropRow(block.getRowMasks(), block.getBottoms(), block.getX(), block.getY());
+    }
+
+    // removes full rows, shifting everything above down, and returns how many were removed
+    public int clearFullRows() {
+        return clearFullRows(0, height - 1);
+    }
+
+    // same, but only rows in [fromRow, toRow] are checked; a lock can only fill the rows its piece covers
+    public int clearFullRows(int fromRow, int toRow) {
+        int from = Math.max(0, fromRow);
+        int to = Math.min(height - 1, toRow);
+        int count = 0;
+        for (int y = from; y <= to; y++) {
+            if (rows[y] == FULL_ROW) {
+                clearedRows[count++] = y;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        // rows above the tallest column are already empty and need no moving
+        int top = height;
+        for (int x = 0; x < width; x++) {
+            top = Math.min(top, height - columnHeights[x]);
+        }
+
+        // one pass from the lowest cleared row up, moving each kept row straight to its final place
+        int write = clearedRows[count - 1];
+        for (int read = write - 1; read >= top; read--) {
+            if (read >= from && rows[read] == FULL_ROW) {
+                continue;
+            }
+            rows[write] = rows[read];
+            System.arraycopy(colors, read * width, colors, write * width, width);
+            write--;
+        }
+        // the rows left behind at the top of the stack, one per cleared line
+        Arrays.fill(rows, top, write + 1, emptyRow);
+        Arrays.fill(colors, top * width, (write + 1) * width, (byte) 0);
+        markDirty(top, clearedRows[count - 1]);
+
+        filledCells -= count * width;
+        recomputeHeights();
+        return count;
+    }
+
+    // clears full rows in [fromRow, toRow] and describes what was removed
+    public LineClear clearLines(int fromRow, int toRow) {
+        int count = clearFullRows(fromRow, toRow);
+        return count == 0 ? LineClear.NONE : new LineClear(Arrays.copyOf(clearedRows, count));
+    }
+
+    // sets a single cell, 0 empties it; meant for garbage rows and loading saved boards
+    public void set(int x, int y, int color) {
+        int bit = 1 << (x + WALL_BITS);
+        boolean wasFilled = (rows[y] & bit) != 0;
+        if (color == 0) {
+            rows[y] &= ~bit;
+            if (wasFilled) {
+                filledCells--;
+                if (columnHeights[x] == height - y) {
+                    recomputeHeights();
+                }
+            }
+        } else {
+            rows[y] |= bit;
+            if (!wasFilled) {
+                filledCells++;
+            }
+            columnHeights[x] = Math.max(columnHeights[x], height - y);
+        }
+        colors[y * width + x] = (byte) color;
+        markDirty(y, y);
+    }
+
+    // rebuilds the skyline from the row masks, scanning down only until every column is found
+    private void recomputeHeights() {
+        Arrays.fill(columnHeights, 0);
+        int pending = (1 << width) - 1;
+        for (int y = 0; y < height && pending != 0; y++) {
+            int found = getRowMask(y) & pending;
+            for (int bits = found; bits != 0; bits &= bits - 1) {
+                columnHeights[Integer.numberOfTrailingZeros(bits)] = height - y;
+            }
+            pending &= ~found;
+        }
+    }
+
+    // makes this playfield an exact copy of another one of the same size
+    public void copyFrom(Playfield other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Playfield sizes differ");
+        }
+        System.arraycopy(other.rows, 0, rows, 0, height);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.columnHeights, 0, columnHeights, 0, width);
+        filledCells = other.filledCells;
+        markDirty(0, height - 1);
+    }
+
+    private void markDirty(int top, int bottom) {
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyBottom = Math.max(dirtyBottom, bottom);
+    }
+
+    // first row changed since the last clearDirty()
+    public int getDirtyTop() {
+        return dirtyTop;
+    }
+
+    // last row changed since the last clearDirty(), below getDirtyTop() when nothing changed
+    public int getDirtyBottom() {
+        return dirtyBottom;
+    }
+
+    // called by whoever draws the playfield once the changed rows are repainted
+    public void clearDirty() {
+        dirtyTop = height;
+        dirtyBottom = -1;
+    }
+
+    // color value at a cell, 0 when empty
+    public int get(int x, int y) {
+        return colors[y * width + x];
+    }
+
+    // occupied columns of a row as a bitmask, bit x set for column x
+    public int getRowMask(int y) {
+        return (rows[y] & ~emptyRow) >>> WALL_BITS;
+    }
+
+    // height of the topmost filled cell in a column, 0 when the column is empty
+    public int getColumnHeight(int x) {
+        return columnHeights[x];
+    }
+
+    // number of filled cells on the board
+    public int getFilledCells() {
+        return filledCells;
+    }
+
+    // checks if a cell is occupied
+    public boolean isOccupied(int x, int y) {
+        return (rows[y] & (1 << (x + WALL_BITS))) != 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,20 @@
+package com.fallingblocks.engine;
+
+// Picks every piece independently and uniformly, like the original spawner
+public class RandomPieceGenerator implements PieceGenerator {
+    private final FastRandom random;
+
+    public RandomPieceGenerator(long seed) {
+        random = new FastRandom(seed);
+    }
+
+    @Override
+    public int next() {
+        return random.nextInt(Block.TYPE_COUNT);
+    }
+
+    @Override
+    public void reset(long seed) {
+        random.setState(seed);
+    }
+}
@@ -0,0 +1,41 @@
+package com.fallingblocks.engine;
+
+// Deals all seven pieces in a shuffled order before reshuffling
+public class SevenBagGenerator implements PieceGenerator {
+    private final FastRandom random;
+    private final int[] bag = new int[Block.TYPE_COUNT];
+    private int index;
+
+    public SevenBagGenerator(long seed) {
+        random = new FastRandom(seed);
+        reset(seed);
+    }
+
+    @Override
+    public int next() {
+        if (index == bag.length) {
+            shuffle();
+        }
+        return bag[index++];
+    }
+
+    @Override
+    public void reset(long seed) {
+        random.setState(seed);
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = i;
+        }
+        shuffle();
+    }
+
+    // Fisher-Yates shuffle in place
+    private void shuffle() {
+        for (int i = bag.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = bag[i];
+            bag[i] = bag[j];
+            bag[j] = temp;
+        }
+        index = 0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.fallingblocks.engine.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+import com.fallingblocks.engine.PieceQueue;
+import com.fallingblocks.engine.Playfield;
+
+// CPU player: enumerates every reachable placement of the current piece (and of the hold alternative),
+// looks further ahead through the preview with a beam search split across worker threads,
+// then feeds the engine the inputs that reach the best placement.
+public class BotPlayer {
+    public static final int DEFAULT_DEPTH = 3;
+    public static final int DEFAULT_BEAM_WIDTH = 8;
+    // marks root decisions that start by holding; landing states stay well below it
+    private static final int HOLD_FLAG = 1 << 30;
+
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final int beamWidth;
+    private final Worker[] workers;
+    private final ExecutorService pool;
+
+    // plan for the current piece: inputs to send and the (rotation, x, y) expected before each one
+    private final Input[] plan;
+    private final int[] expected;
+    private int planLength;
+    private int planIndex;
+
+    private long searchNanos;
+
+    // a search node: a board after some placements, and the piece still to place on it
+    private static final class Node {
+        final Playfield board;
+        final int pieceType;
+        final int rotation;
+        final int x;
+        final int y;
+        // index into the preview of the piece after this one
+        final int nextPreview;
+        final int lines;
+        final double score;
+        // the first decision that led here: hold flag in the top bit, landing state below
+        final int rootDecision;
+
+        Node(Playfield board, int pieceType, int rotation, int x, int y, int nextPreview, int lines, double score, int rootDecision) {
+            this.board = board;
+            this.pieceType = pieceType;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+            this.nextPreview = nextPreview;
+            this.lines = lines;
+            this.score = score;
+            this.rootDecision = rootDecision;
+        }
+    }
+
+    // per-thread scratch state so expansion never shares mutable objects
+    private final class Worker {
+        final PlacementSearch search = new PlacementSearch(width, height);
+        final Playfield scratch = new Playfield(width, height);
+        final Evaluator evaluator = new Evaluator();
+        long evaluated;
+
+        // expands a slice of the beam, returning {node index, landing, lines, score} per child
+        List<double[]> expand(List<Node> beam, int from, int to) {
+            List<double[]> children = new ArrayList<>();
+            for (int n = from; n < to; n++) {
+                Node node = beam.get(n);
+                int count = search.search(node.board, node.pieceType, node.rotation, node.x, node.y);
+                for (int i = 0; i < count; i++) {
+                    int landing = search.landing(i);
+                    scratch.copyFrom(node.board);
+                    int rotation = search.rotationOf(landing);
+                    int y = search.yOf(landing);
+                    scratch.place(Block.rowMasksOf(node.pieceType, rotation), search.xOf(landing), y, node.pieceType + 1);
+                    int lines = node.lines + scratch.clearFullRows(y, y + Block.rowMasksOf(node.pieceType, rotation).length - 1);
+                    double score = evaluator.evaluate(scratch, lines);
+                    evaluated++;
+                    children.add(new double[] {n, landing, lines, score});
+                }
+            }
+            return children;
+        }
+    }
+
+    public BotPlayer(int width, int height) {
+        this(width, height, DEFAULT_DEPTH, DEFAULT_BEAM_WIDTH, Runtime.getRuntime().availableProcessors());
+    }
+
+    // depth counts the pieces placed per search, the current one included; threads of 1 searches inline
+    public BotPlayer(int width, int height, int depth, int beamWidth, int threads) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.beamWidth = beamWidth;
+        workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+        pool = workers.length > 1 ? Executors.newFixedThreadPool(workers.length, r -> {
+            Thread thread = new Thread(r, "bot-search");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        plan = new Input[workers[0].search.maxPathLength() + 2];
+        expected = new int[plan.length];
+    }
+
+    // next input for the engine, replanning whenever the piece is not where the plan expects
+    public Input nextInput(GameEngine engine) {
+        if (engine.isGameOver()) return null;
+
+        Block current = engine.getCurrentBlock();
+        PlacementSearch search = workers[0].search;
+        int state = search.encode(current.getRotation(), current.getX(), current.getY());
+        if (planIndex >= planLength || expected[planIndex] != state) {
+            makePlan(engine);
+            if (planLength == 0) return Input.HARD_DROP;
+        }
+        return plan[planIndex++];
+    }
+
+    // runs the search and turns the best first decision into inputs
+    private void makePlan(GameEngine engine) {
+        planLength = 0;
+        planIndex = 0;
+        int decision = decide(engine);
+        if (decision < 0) return;
+
+        Block current = engine.getCurrentBlock();
+        if ((decision & HOLD_FLAG) != 0) {
+            // the piece after the hold is planned once it is in play
+            expected[0] = workers[0].search.encode(current.getRotation(), current.getX(), current.getY());
+            plan[0] = Input.HOLD;
+            planLength = 1;
+            return;
+        }
+
+        PlacementSearch search = workers[0].search;
+        search.search(engine.getPlayfield(), current.getType(), current.getRotation(), current.getX(), current.getY());
+        int length = search.path(decision, plan);
+        // replay the path to know where the piece should be before each input
+        int r = current.getRotation();
+        int x = current.getX();
+        int y = current.getY();
+        Playfield board = engine.getPlayfield();
+        for (int i = 0; i < length; i++) {
+            expected[i] = search.encode(r, x, y);
+            switch (plan[i]) {
+                case LEFT: x--; break;
+                case RIGHT: x++; break;
+                case SOFT_DROP: y++; break;
+                case ROTATE:
+                    int turned = (r + 1) & (Block.ROTATION_COUNT - 1);
+                    if (!board.fits(Block.rowMasksOf(current.getType(), turned), x, y)) {
+                        for (int dx : Block.kicksOf(current.getType(), turned)) {
+                            if (board.fits(Block.rowMasksOf(current.getType(), turned), x + dx, y)) {
+                                x += dx;
+                                break;
+                            }
+                        }
+                    }
+                    r = turned;
+                    break;
+                default:
+                    break;
+            }
+        }
+        expected[length] = decision;
+        plan[length] = Input.HARD_DROP;
+        planLength = length + 1;
+    }
+
+    // beam search; returns the best root decision or -1 if nothing can be placed
+    public int decide(GameEngine engine) {
+        long start = System.nanoTime();
+        Block current = engine.getCurrentBlock();
+        PieceQueue preview = engine.getPieceQueue();
+
+        List<Node> beam = new ArrayList<>();
+        beam.add(new Node(engine.getPlayfield(), current.getType(), current.getRotation(), current.getX(), current.getY(),
+            0, 0, 0, 0));
+        if (engine.canSave()) {
+            Block saved = engine.getSavedBlock();
+            if (saved != null) {
+                beam.add(new Node(engine.getPlayfield(), saved.getType(), saved.getRotation(), 3, 0, 0, 0, 0, HOLD_FLAG));
+            } else {
+                beam.add(new Node(engine.getPlayfield(), preview.peek(0), 0, 3, 0, 1, 0, 0, HOLD_FLAG));
+            }
+        }
+
+        int best = -1;
+        for (int level = 0; level < depth && !beam.isEmpty(); level++) {
+            List<double[]> children = expandInParallel(beam);
+            if (children.isEmpty()) break;
+            children.sort((a, b) -> Double.compare(b[3], a[3]));
+
+            List<Node> nextBeam = new ArrayList<>(beamWidth);
+            for (int i = 0; i < children.size() && nextBeam.size() < beamWidth; i++) {
+                double[] child = children.get(i);
+                Node parent = beam.get((int) child[0]);
+                int landing = (int) child[1];
+                int rootDecision = level == 0 ? parent.rootDecision | landing : parent.rootDecision;
+                if (i == 0) {
+                    best = rootDecision;
+                }
+                if (level + 1 < depth && parent.nextPreview < preview.size()) {
+                    PlacementSearch search = workers[0].search;
+                    Playfield board = new Playfield(width, height);
+                    board.copyFrom(parent.board);
+                    board.place(Block.rowMasksOf(parent.pieceType, search.rotationOf(landing)),
+                        search.xOf(landing), search.yOf(landing), parent.pieceType + 1);
+                    board.clearFullRows();
+                    nextBeam.add(new Node(board, preview.peek(parent.nextPreview), 0, 3, 0,
+                        parent.nextPreview + 1, (int) child[2], child[3], rootDecision));
+                }
+            }
+            beam = nextBeam;
+        }
+
+        searchNanos += System.nanoTime() - start;
+        return best;
+    }
+
+    // splits the beam into one slice per worker
+    private List<double[]> expandInParallel(List<Node> beam) {
+        if (pool == null || beam.size() == 1) {
+            return workers[0].expand(beam, 0, beam.size());
+        }
+        int slices = Math.min(workers.length, beam.size());
+        List<Callable<List<double[]>>> tasks = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            Worker worker = workers[i];
+            int from = beam.size() * i / slices;
+            int to = beam.size() * (i + 1) / slices;
+            tasks.add(() -> worker.expand(beam, from, to));
+        }
+        List<double[]> children = new ArrayList<>();
+        try {
+            for (Future<List<double[]>> result : pool.invokeAll(tasks)) {
+                children.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bot search failed", e.getCause());
+        }
+        return children;
+    }
+
+    // placements scored since this bot was created
+    public long getEvaluatedPlacements() {
+        long total = 0;
+        for (Worker worker : workers) {
+            total += worker.evaluated;
+        }
+        return total;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    // search throughput; divide by the thread count for the per-core figure
+    public double getPlacementsPerSecond() {
+        return searchNanos == 0 ? 0 : getEvaluatedPlacements() * 1e9 / searchNanos;
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    // stops the worker threads
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.fallingblocks.engine.bot;
+
+import com.fallingblocks.engine.Playfield;
+
+// Linear board heuristic over aggregate height, cleared lines, holes and bumpiness.
+// Default weights are the widely used ones tuned by a genetic search for this feature set.
+public class Evaluator {
+    private final double heightWeight;
+    private final double linesWeight;
+    private final double holesWeight;
+    private final double bumpinessWeight;
+
+    public Evaluator() {
+        this(-0.510066, 0.760666, -0.35663, -0.184483);
+    }
+
+    public Evaluator(double heightWeight, double linesWeight, double holesWeight, double bumpinessWeight) {
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+    }
+
+    // scores a board after its full rows were cleared; higher is better
+    public double evaluate(Playfield playfield, int linesCleared) {
+        int width = playfield.getWidth();
+        int aggregateHeight = 0;
+        int bumpiness = 0;
+        int previous = playfield.getColumnHeight(0);
+        for (int x = 0; x < width; x++) {
+            int h = playfield.getColumnHeight(x);
+            aggregateHeight += h;
+            bumpiness += Math.abs(h - previous);
+            previous = h;
+        }
+        // every empty cell under a column's top is a hole
+        int holes = aggregateHeight - playfield.getFilledCells();
+        return heightWeight * aggregateHeight
+            + linesWeight * linesCleared
+            + holesWeight * holes
+            + bumpinessWeight * bumpiness;
+    }
+}
@@ -0,0 +1,151 @@
+package com.fallingblocks.engine.bot;
+
+import java.util.Arrays;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.Input;
+import com.fallingblocks.engine.Playfield;
+
+// Breadth-first search over every (rotation, x, y) a piece can reach with the engine's own moves,
+// including its wall kicks, collecting the states where the piece can no longer fall.
+// One instance is reused for many searches and is not thread-safe.
+public class PlacementSearch {
+    // x can go a little past the left wall before fits() rejects it
+    private static final int X_OFFSET = 4;
+    private static final Input[] MOVES = {Input.LEFT, Input.RIGHT, Input.ROTATE, Input.SOFT_DROP};
+
+    private final int xSpan;
+    private final int ySpan;
+    private final int[] visited;
+    private final int[] parent;
+    private final byte[] moveTo;
+    private final int[] queue;
+    private final int[] landings;
+    private int landingCount;
+    private int stamp;
+    private int start;
+
+    public PlacementSearch(int width, int height) {
+        xSpan = width + 2 * X_OFFSET;
+        ySpan = height;
+        int states = Block.ROTATION_COUNT * xSpan * ySpan;
+        visited = new int[states];
+        parent = new int[states];
+        moveTo = new byte[states];
+        queue = new int[states];
+        landings = new int[states];
+    }
+
+    // finds every resting state reachable from the start; returns how many were found
+    public int search(Playfield playfield, int type, int rotation, int x, int y) {
+        landingCount = 0;
+        // a new stamp marks every state unvisited without clearing the array
+        if (++stamp == 0) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+        if (!inBounds(x, y) || !playfield.fits(Block.rowMasksOf(type, rotation), x, y)) {
+            return 0;
+        }
+        start = encode(rotation, x, y);
+        visited[start] = stamp;
+        parent[start] = -1;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int r = rotationOf(state);
+            int sx = xOf(state);
+            int sy = yOf(state);
+            int[] rows = Block.rowMasksOf(type, r);
+
+            if (!playfield.fits(rows, sx, sy + 1)) {
+                landings[landingCount++] = state;
+            }
+            for (int m = 0; m < MOVES.length; m++) {
+                int next = apply(playfield, type, MOVES[m], r, sx, sy);
+                if (next >= 0 && visited[next] != stamp) {
+                    visited[next] = stamp;
+                    parent[next] = state;
+                    moveTo[next] = (byte) m;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return landingCount;
+    }
+
+    // the state one move leads to, or -1 if the move is blocked
+    private int apply(Playfield playfield, int type, Input move, int rotation, int x, int y) {
+        switch (move) {
+            case LEFT:
+                return fitsAt(playfield, type, rotation, x - 1, y) ? encode(rotation, x - 1, y) : -1;
+            case RIGHT:
+                return fitsAt(playfield, type, rotation, x + 1, y) ? encode(rotation, x + 1, y) : -1;
+            case SOFT_DROP:
+                return fitsAt(playfield, type, rotation, x, y + 1) ? encode(rotation, x, y + 1) : -1;
+            case ROTATE:
+                // same order as GameEngine: plain rotation first, then each kick of the new state
+                int turned = (rotation + 1) & (Block.ROTATION_COUNT - 1);
+                if (fitsAt(playfield, type, turned, x, y)) {
+                    return encode(turned, x, y);
+                }
+                for (int dx : Block.kicksOf(type, turned)) {
+                    if (fitsAt(playfield, type, turned, x + dx, y)) {
+                        return encode(turned, x + dx, y);
+                    }
+                }
+                return -1;
+            default:
+                return -1;
+        }
+    }
+
+    private boolean fitsAt(Playfield playfield, int type, int rotation, int x, int y) {
+        return inBounds(x, y) && playfield.fits(Block.rowMasksOf(type, rotation), x, y);
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x + X_OFFSET >= 0 && x + X_OFFSET < xSpan && y >= 0 && y < ySpan;
+    }
+
+    // writes the moves from the start to a landing into out and returns how many there are
+    public int path(int landing, Input[] out) {
+        int length = 0;
+        for (int state = landing; state != start; state = parent[state]) {
+            length++;
+        }
+        int i = length;
+        for (int state = landing; state != start; state = parent[state]) {
+            out[--i] = MOVES[moveTo[state]];
+        }
+        return length;
+    }
+
+    // the i-th landing of the last search, as an encoded state
+    public int landing(int i) {
+        return landings[i];
+    }
+
+    public int maxPathLength() {
+        return visited.length;
+    }
+
+    public int encode(int rotation, int x, int y) {
+        return (rotation * ySpan + y) * xSpan + x + X_OFFSET;
+    }
+
+    public int rotationOf(int state) {
+        return state / (xSpan * ySpan);
+    }
+
+    public int xOf(int state) {
+        return state % xSpan - X_OFFSET;
+    }
+
+    public int yOf(int state) {
+        return state / xSpan % ySpan;
+    }
+}
@@ -0,0 +1,97 @@
+package com.fallingblocks.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Lockstep checks and authoritative snapshots rely on a loaded state being the game itself: the
+// same hash, the same bytes when written again, and the same game from then on given the same
+// inputs.
+class GameEngineStateTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final Input[] INPUTS = Input.values();
+
+    @Test
+    void loadedStateCarriesOnLikeTheOriginal() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random moves = new Random(seed);
+            GameEngine original = new GameEngine(WIDTH, HEIGHT, seed);
+            // snapshots taken at several points of one game, ended or not
+            for (int snapshot = 0; snapshot < 8; snapshot++) {
+                play(original, moves, 40);
+                GameEngine copy = new GameEngine(WIDTH, HEIGHT, seed + 1000);
+                byte[] written = write(original);
+                copy.readState(ByteBuffer.wrap(written));
+                assertEquals(original.stateHash(), copy.stateHash(), "hash after load, seed " + seed);
+                assertArrayEquals(written, write(copy), "state written again, seed " + seed);
+
+                long future = moves.nextLong();
+                Random originalMoves = new Random(future);
+                Random copyMoves = new Random(future);
+                for (int i = 0; i < 300; i++) {
+                    play(original, originalMoves, 1);
+                    play(copy, copyMoves, 1);
+                    assertEquals(original.stateHash(), copy.stateHash(), "hash " + i + " moves on, seed " + seed);
+                }
+                assertArrayEquals(board(original), board(copy));
+                assertEquals(original.getScore(), copy.getScore());
+                assertEquals(original.getLinesCleared(), copy.getLinesCleared());
+                assertEquals(original.isGameOver(), copy.isGameOver());
+            }
+            assertTrue(original.getPiecesPlaced() > 0);
+        }
+    }
+
+    @Test
+    void writtenStateIsStateSizeLong() {
+        GameEngine engine = new GameEngine(WIDTH, HEIGHT, 3);
+        play(engine, new Random(3), 100);
+        ByteBuffer out = ByteBuffer.allocate(GameEngine.stateSize(WIDTH, HEIGHT) + 16);
+        engine.writeState(out);
+        assertEquals(GameEngine.stateSize(WIDTH, HEIGHT), out.position());
+    }
+
+    @Test
+    void stateForAnotherBoardSizeIsRejected() {
+        GameEngine small = new GameEngine(8, 16, 5);
+        GameEngine engine = new GameEngine(WIDTH, HEIGHT, 5);
+        ByteBuffer state = ByteBuffer.wrap(write(small));
+        assertThrows(IllegalArgumentException.class, () -> engine.readState(state));
+    }
+
+    // inputs with a gravity tick now and then, hard drops rare enough for games to last a while
+    private static void play(GameEngine engine, Random moves, int count) {
+        for (int i = 0; i < count; i++) {
+            if (moves.nextInt(5) == 0) {
+                engine.tick();
+                continue;
+            }
+            Input input = INPUTS[moves.nextInt(INPUTS.length)];
+            if (input == Input.HARD_DROP && moves.nextInt(3) != 0) {
+                input = Input.SOFT_DROP;
+            }
+            engine.step(input);
+        }
+    }
+
+    private static byte[] write(GameEngine engine) {
+        int width = engine.getPlayfield().getWidth();
+        int height = engine.getPlayfield().getHeight();
+        ByteBuffer out = ByteBuffer.allocate(GameEngine.stateSize(width, height));
+        engine.writeState(out);
+        return out.array();
+    }
+
+    private static byte[] board(GameEngine engine) {
+        byte[] cells = new byte[WIDTH * HEIGHT];
+        engine.writeBoard(cells);
+        return cells;
+    }
+}
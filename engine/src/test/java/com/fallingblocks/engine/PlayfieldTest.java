@@ -0,0 +1,179 @@
+package com.fallingblocks.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Checks the bitboard against the plain grid rules the game started with: a cell grid, pieces
+// checked cell by cell, drops one row at a time and full rows removed with the rest shifted down.
+class PlayfieldTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+
+    // the original rules on an int grid, [row][column]
+    private static final class Reference {
+        final int[][] grid = new int[HEIGHT][WIDTH];
+
+        boolean fits(int[][] shape, int x, int y) {
+            for (int i = 0; i < shape.length; i++) {
+                for (int j = 0; j < shape[i].length; j++) {
+                    if (shape[i][j] == 0) continue;
+                    int column = x + j;
+                    int row = y + i;
+                    if (column < 0 || column >= WIDTH || row >= HEIGHT) return false;
+                    if (row >= 0 && grid[row][column] != 0) return false;
+                }
+            }
+            return true;
+        }
+
+        int dropRow(int[][] shape, int x, int y) {
+            while (fits(shape, x, y + 1)) {
+                y++;
+            }
+            return y;
+        }
+
+        int clearFullRows() {
+            int cleared = 0;
+            for (int row = HEIGHT - 1; row >= 0; row--) {
+                boolean full = true;
+                for (int column = 0; column < WIDTH; column++) {
+                    full &= grid[row][column] != 0;
+                }
+                if (!full) continue;
+                for (int above = row; above > 0; above--) {
+                    grid[above] = grid[above - 1].clone();
+                }
+                grid[0] = new int[WIDTH];
+                cleared++;
+                row++; // look at the row that moved down into this one
+            }
+            return cleared;
+        }
+
+        void set(int x, int y, int color) {
+            grid[y][x] = color;
+        }
+    }
+
+    @Test
+    void fitsAndDropRowMatchTheGridOnRandomBoards() {
+        Random random = new Random(42);
+        for (int board = 0; board < 200; board++) {
+            Playfield playfield = new Playfield(WIDTH, HEIGHT);
+            Reference reference = new Reference();
+            // scattered cells from a random depth down leave overhangs and holes
+            int top = 2 + random.nextInt(HEIGHT - 2);
+            for (int y = top; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if (random.nextInt(3) == 0) {
+                        playfield.set(x, y, 1 + random.nextInt(7));
+                        reference.set(x, y, playfield.get(x, y));
+                    }
+                }
+            }
+            assertSameCells(reference, playfield);
+            for (int type = 0; type < Block.TYPE_COUNT; type++) {
+                for (int rotation = 0; rotation < Block.ROTATION_COUNT; rotation++) {
+                    int[][] shape = Block.shapeOf(type, rotation);
+                    int[] rows = Block.rowMasksOf(type, rotation);
+                    for (int x = -4; x <= WIDTH; x++) {
+                        for (int y = -3; y <= HEIGHT; y++) {
+                            boolean fits = reference.fits(shape, x, y);
+                            String where = "type " + type + " rotation " + rotation + " at " + x + "," + y
+                                + " on board " + board;
+                            assertEquals(fits, playfield.fits(rows, x, y), where);
+                            if (fits) {
+                                assertEquals(reference.dropRow(shape, x, y),
+                                    playfield.dropRow(rows, Block.bottomsOf(type, rotation), x, y), where);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void dropRowStopsOnTheRoofAboveAndFallsThroughUnderIt() {
+        Playfield playfield = new Playfield(WIDTH, HEIGHT);
+        Reference reference = new Reference();
+        // a roof on row 10 over columns 0-5, open below down to the floor
+        for (int x = 0; x <= 5; x++) {
+            playfield.set(x, 10, 2);
+            reference.set(x, 10, 2);
+        }
+        int type = 0; // I, lying flat
+        int[][] shape = Block.shapeOf(type, 0);
+        int[] rows = Block.rowMasksOf(type, 0);
+        int[] bottoms = Block.bottomsOf(type, 0);
+        assertEquals(9, playfield.dropRow(rows, bottoms, 1, 0));
+        // starting under the roof the skyline says it is buried, so the step-down path decides
+        assertEquals(reference.dropRow(shape, 1, 11), playfield.dropRow(rows, bottoms, 1, 11));
+        assertEquals(HEIGHT - 1, playfield.dropRow(rows, bottoms, 1, 11));
+        // half under the roof, half in the open
+        assertEquals(reference.dropRow(shape, 4, 11), playfield.dropRow(rows, bottoms, 4, 11));
+    }
+
+    @Test
+    void clearFullRowsRemovesRowsThatAreNotNextToEachOther() {
+        Playfield playfield = new Playfield(WIDTH, HEIGHT);
+        Reference reference = new Reference();
+        Random random = new Random(7);
+        // full rows at the top and bottom edges and in between, with partial rows around them
+        int[] fullRows = {0, 5, 6, 12, HEIGHT - 1};
+        for (int y = 0; y < HEIGHT; y++) {
+            boolean full = false;
+            for (int row : fullRows) {
+                full |= row == y;
+            }
+            for (int x = 0; x < WIDTH; x++) {
+                if (full || (y > 3 && random.nextBoolean())) {
+                    int color = 1 + (x + y) % 7;
+                    playfield.set(x, y, color);
+                    reference.set(x, y, color);
+                }
+            }
+        }
+        assertEquals(reference.clearFullRows(), playfield.clearFullRows());
+        assertSameCells(reference, playfield);
+        assertEquals(0, playfield.clearFullRows());
+    }
+
+    @Test
+    void clearFullRowsOnlyLooksInTheGivenRange() {
+        Playfield playfield = new Playfield(WIDTH, HEIGHT);
+        for (int x = 0; x < WIDTH; x++) {
+            playfield.set(x, 3, 1);
+            playfield.set(x, HEIGHT - 1, 1);
+        }
+        assertEquals(1, playfield.clearFullRows(HEIGHT - 4, HEIGHT - 1));
+        // row 3 moved down one and is still full
+        assertEquals(1, playfield.clearFullRows(0, HEIGHT - 1));
+        assertEquals(0, playfield.getFilledCells());
+    }
+
+    private static void assertSameCells(Reference reference, Playfield playfield) {
+        int filled = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            int[] row = new int[WIDTH];
+            for (int x = 0; x < WIDTH; x++) {
+                row[x] = playfield.get(x, y);
+                if (reference.grid[y][x] != 0) filled++;
+            }
+            assertArrayEquals(reference.grid[y], row, "row " + y);
+        }
+        assertEquals(filled, playfield.getFilledCells());
+        for (int x = 0; x < WIDTH; x++) {
+            int expected = 0;
+            for (int y = HEIGHT - 1; y >= 0; y--) {
+                if (reference.grid[y][x] != 0) expected = HEIGHT - y;
+            }
+            assertEquals(expected, playfield.getColumnHeight(x), "height of column " + x);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.fallingblocks;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.fallingblocks.engine.FastRandom;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+import com.fallingblocks.engine.bot.BotPlayer;
+
+// Command line entry point that plays many headless games in parallel and prints aggregate statistics.
+// Usage: BatchSimulator [--games N] [--pieces N] [--seed N] [--threads N] [--policy random|bot|script:MOVES]
+// Script moves: L left, R right, D soft drop, U rotate, S hard drop, C hold, T gravity tick
+public class BatchSimulator {
+    // Result arrays, one slot per game so worker threads never share a slot
+    private final int[] scores;
+    private final int[] lines;
+    private final int[] pieces;
+    private final boolean[] toppedOut;
+    private final long[] botPlacements;
+    private final long[] botNanos;
+
+    private final int games;
+    private final int maxPieces;
+    private final long seed;
+    private final String policy;
+
+    public BatchSimulator(int games, int maxPieces, long seed, String policy) {
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.seed = seed;
+        this.policy = policy;
+        scores = new int[games];
+        lines = new int[games];
+        pieces = new int[games];
+        toppedOut = new boolean[games];
+        botPlacements = new long[games];
+        botNanos = new long[games];
+    }
+
+    // Supplies the next action for a game; null means let gravity tick
+    public interface InputPolicy {
+        Input next(GameEngine engine);
+    }
+
+    // Random moves with occasional gravity ticks and hard drops, seeded per game
+    static class RandomPolicy implements InputPolicy {
+        private static final Input[] MOVES = {Input.LEFT, Input.RIGHT, Input.ROTATE, Input.SOFT_DROP, Input.HOLD};
+        private final FastRandom random;
+
+        RandomPolicy(long seed) {
+            random = new FastRandom(seed);
+        }
+
+        @Override
+        public Input next(GameEngine engine) {
+            int roll = random.nextInt(100);
+            if (roll < 25) return null;
+            if (roll < 35) return Input.HARD_DROP;
+            return MOVES[random.nextInt(MOVES.length)];
+        }
+    }
+
+    // The built-in CPU player, searching single threaded since the games already run in parallel
+    static class BotPolicy implements InputPolicy {
+        final BotPlayer bot = new BotPlayer(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT,
+            BotPlayer.DEFAULT_DEPTH, BotPlayer.DEFAULT_BEAM_WIDTH, 1);
+
+        @Override
+        public Input next(GameEngine engine) {
+            return bot.nextInput(engine);
+        }
+    }
+
+    // Replays a fixed move string in a loop
+    static class ScriptedPolicy implements InputPolicy {
+        private final Input[] script;
+        private int position;
+
+        ScriptedPolicy(String moves) {
+            // without a tick or hard drop no piece would ever lock and the game would never end
+            if (!moves.toUpperCase().matches(".*[TS].*")) {
+                throw new IllegalArgumentException("Script needs at least one T or S move: " + moves);
+            }
+            script = new Input[moves.length()];
+            for (int i = 0; i < moves.length(); i++) {
+                script[i] = parseMove(moves.charAt(i));
+            }
+        }
+
+        @Override
+        public Input next(GameEngine engine) {
+            Input input = script[position];
+            position = (position + 1) % script.length;
+            return input;
+        }
+
+        private static Input parseMove(char move) {
+            switch (Character.toUpperCase(move)) {
+                case 'L': return Input.LEFT;
+                case 'R': return Input.RIGHT;
+                case 'D': return Input.SOFT_DROP;
+                case 'U': return Input.ROTATE;
+                case 'S': return Input.HARD_DROP;
+                case 'C': return Input.HOLD;
+                case 'T': return null;
+                default: throw new IllegalArgumentException("Unknown script move: " + move);
+            }
+        }
+    }
+
+    // creates the policy for one game
+    InputPolicy createPolicy(long gameSeed) {
+        if (policy.equals("random")) {
+            return new RandomPolicy(gameSeed);
+        }
+        if (policy.equals("bot")) {
+            return new BotPolicy();
+        }
+        if (policy.startsWith("script:") && policy.length() > "script:".length()) {
+            return new ScriptedPolicy(policy.substring("script:".length()));
+        }
+        throw new IllegalArgumentException("Unknown policy: " + policy);
+    }
+
+    // plays one game until top out or the piece limit
+    void playGame(int game) {
+        long gameSeed = seed + game;
+        GameEngine engine = new GameEngine(gameSeed);
+        InputPolicy inputPolicy = createPolicy(gameSeed);
+        while (!engine.isGameOver() && engine.getPiecesPlaced() < maxPieces) {
+            Input input = inputPolicy.next(engine);
+            if (input == null) {
+                engine.tick();
+            } else {
+                engine.step(input);
+            }
+        }
+        scores[game] = engine.getScore();
+        lines[game] = engine.getLinesCleared();
+        pieces[game] = engine.getPiecesPlaced();
+        toppedOut[game] = engine.isGameOver();
+        if (inputPolicy instanceof BotPolicy) {
+            BotPlayer bot = ((BotPolicy) inputPolicy).bot;
+            botPlacements[game] = bot.getEvaluatedPlacements();
+            botNanos[game] = bot.getSearchNanos();
+        }
+    }
+
+    // runs every game on the pool and returns the wall time in nanoseconds
+    public long run(int threads) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            pool.submit(() -> IntStream.range(0, games).parallel().forEach(this::playGame)).get();
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // prints pieces per second, lines, score distribution and top out rate
+    public void printReport(long elapsedNanos, int threads) {
+        long totalPieces = 0;
+        long totalLines = 0;
+        int tops = 0;
+        for (int i = 0; i < games; i++) {
+            totalPieces += pieces[i];
+            totalLines += lines[i];
+            if (toppedOut[i]) tops++;
+        }
+        int[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.printf("Games:          %d on %d threads in %.2f s (policy %s, seed %d)%n", games, threads, seconds, policy, seed);
+        System.out.printf("Pieces:         %d total, %.0f pieces/s, %.1f per game%n", totalPieces, totalPieces / seconds, (double) totalPieces / games);
+        System.out.printf("Lines:          %d total, %.2f per game%n", totalLines, (double) totalLines / games);
+        System.out.printf("Score:          min %d, p50 %d, p90 %d, p99 %d, max %d, mean %.1f%n",
+            sorted[0], percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[games - 1],
+            Arrays.stream(sorted).average().orElse(0));
+        System.out.printf("Top out rate:   %.2f%% (%d of %d)%n", 100.0 * tops / games, tops, games);
+
+        long placements = Arrays.stream(botPlacements).sum();
+        long searchNanos = Arrays.stream(botNanos).sum();
+        if (searchNanos > 0) {
+            System.out.printf("Bot search:     %d placements evaluated, %.0f per second per core%n",
+                placements, placements * 1e9 / searchNanos);
+        }
+    }
+
+    private static int percentile(int[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    // prints what is wrong with the arguments and how to call it, then exits with status 2
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: BatchSimulator [--games N] [--pieces N] [--seed N] [--threads N] [--policy random|bot|script:MOVES]");
+        System.exit(2);
+    }
+
+    // the value following the flag at args[i]
+    private static String valueOf(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            usage("Missing value for " + args[i]);
+        }
+        return args[i + 1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        int maxPieces = 1000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String policy = "random";
+
+        for (int i = 0; i < args.length; i++) {
+            try {
+                switch (args[i]) {
+                    case "--games": games = Integer.parseInt(valueOf(args, i++)); break;
+                    case "--pieces": maxPieces = Integer.parseInt(valueOf(args, i++)); break;
+                    case "--seed": seed = Long.parseLong(valueOf(args, i++)); break;
+                    case "--threads": threads = Integer.parseInt(valueOf(args, i++)); break;
+                    case "--policy": policy = valueOf(args, i++); break;
+                    default:
+                        usage("Unknown argument: " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                usage("Not a number for " + args[i - 1] + ": " + args[i]);
+            }
+        }
+        if (games < 1 || maxPieces < 1 || threads < 1) {
+            usage("--games, --pieces and --threads must be at least 1");
+        }
+
+        BatchSimulator simulator = new BatchSimulator(games, maxPieces, seed, policy);
+        try {
+            simulator.createPolicy(seed); // fail fast on a bad policy before starting the pool
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+        }
+        long elapsed = simulator.run(threads);
+        simulator.printReport(elapsed, threads);
+    }
+}
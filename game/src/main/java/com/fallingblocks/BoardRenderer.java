@@ -0,0 +1,26 @@
+package com.fallingblocks;
+
+import java.util.Map;
+
+import com.fallingblocks.engine.GameEngine;
+
+import javafx.scene.Node;
+
+// Draws a GameBoard; implementations only repaint what changed since the last render
+public interface BoardRenderer {
+    // the node to put in the scene
+    Node getView();
+
+    double getWidth();
+
+    double getHeight();
+
+    // an opponent board changed, joined or left
+    void markOpponentsDirty();
+
+    // forgets everything painted so the next render repaints all of it
+    void invalidate();
+
+    // brings the view up to date with the engine and opponent boards
+    void render(GameEngine engine, Map<Integer, int[][]> opponentGrids, boolean waiting);
+}
@@ -0,0 +1,212 @@
+package com.fallingblocks;
+
+import java.util.Map;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Playfield;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+// Draws the board on stacked canvases so each frame only repaints what changed:
+// grid lines once, locked cells by dirty row, the falling piece and ghost by their old and new cells,
+// opponents when an update arrives, and the side panel when next, saved or score change.
+public class CanvasRenderer implements BoardRenderer {
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int cellSize;
+
+    private final Pane view;
+    private final Canvas gridLayer;
+    private final Canvas stackLayer;
+    private final Canvas pieceLayer;
+    private final Canvas opponentLayer;
+    private final HudLayer hud;
+
+    // what the piece layer currently shows, so it can be erased cell by cell
+    private int paintedType = -1;
+    private int paintedRotation;
+    private int paintedX;
+    private int paintedY;
+    private int paintedGhostY;
+
+    private boolean stackValid;
+    private boolean opponentsDirty = true;
+
+    public CanvasRenderer(int gridWidth, int gridHeight, int cellSize, int nextPieceX, int nextPieceY, int savedPieceX, int savedPieceY) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellSize = cellSize;
+
+        double width = (gridWidth + 5) * cellSize;
+        double height = gridHeight * cellSize;
+        gridLayer = new Canvas(width, height);
+        stackLayer = new Canvas(width, height);
+        pieceLayer = new Canvas(width, height);
+        opponentLayer = new Canvas(width, height);
+        hud = new HudLayer(width, height, cellSize, nextPieceX, nextPieceY, savedPieceX, savedPieceY);
+        view = new Pane(gridLayer, stackLayer, pieceLayer, opponentLayer, hud.getCanvas());
+        drawGrid();
+    }
+
+    @Override
+    public Node getView() {
+        return view;
+    }
+
+    @Override
+    public double getWidth() {
+        return gridLayer.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return gridLayer.getHeight();
+    }
+
+    @Override
+    public void markOpponentsDirty() {
+        opponentsDirty = true;
+    }
+
+    @Override
+    public void invalidate() {
+        paintedType = -1;
+        stackValid = false;
+        hud.invalidate();
+        opponentsDirty = true;
+        pieceLayer.getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    @Override
+    public void render(GameEngine engine, Map<Integer, int[][]> opponentGrids, boolean waiting) {
+        Playfield playfield = engine.getPlayfield();
+        if (!stackValid) {
+            drawStackRows(playfield, 0, gridHeight - 1);
+            stackValid = true;
+        } else if (playfield.getDirtyTop() <= playfield.getDirtyBottom()) {
+            drawStackRows(playfield, playfield.getDirtyTop(), playfield.getDirtyBottom());
+        }
+        playfield.clearDirty();
+
+        drawPiece(engine);
+
+        if (opponentsDirty) {
+            drawOpponents(opponentGrids);
+            opponentsDirty = false;
+        }
+
+        hud.render(engine, waiting);
+    }
+
+    // draws the grid lines, which never change
+    private void drawGrid() {
+        GraphicsContext gc = gridLayer.getGraphicsContext2D();
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, getWidth(), getHeight());
+        gc.setStroke(Color.GRAY);
+        gc.setLineWidth(1);
+
+        // Draw vertical lines
+        for (int i = 0; i <= gridWidth; i++) {
+            gc.strokeLine(i * cellSize, 0, i * cellSize, gridHeight * cellSize);
+        }
+
+        // Draw horizontal lines
+        for (int i = 0; i <= gridHeight; i++) {
+            gc.strokeLine(0, i * cellSize, gridWidth * cellSize, i * cellSize);
+        }
+    }
+
+    // repaints the locked cells of the given rows
+    private void drawStackRows(Playfield playfield, int top, int bottom) {
+        GraphicsContext gc = stackLayer.getGraphicsContext2D();
+        gc.clearRect(0, top * cellSize, gridWidth * cellSize, (bottom - top + 1) * cellSize);
+        for (int i = top; i <= bottom; i++) {
+            for (int j = 0; j < gridWidth; j++) {
+                int color = playfield.get(j, i);
+                if (color != 0) {
+                    fillCell(gc, Palette.CELL[color], j, i);
+                }
+            }
+        }
+    }
+
+    // erases the previous piece and ghost cells and paints the new ones, if anything moved
+    private void drawPiece(GameEngine engine) {
+        Block block = engine.getCurrentBlock();
+        int ghostY = engine.isGameOver() ? block.getY() : engine.getDropPosition();
+        if (block.getType() == paintedType && block.getRotation() == paintedRotation
+            && block.getX() == paintedX && block.getY() == paintedY && ghostY == paintedGhostY) {
+            return;
+        }
+
+        GraphicsContext gc = pieceLayer.getGraphicsContext2D();
+        if (paintedType >= 0) {
+            clearShape(gc, paintedType, paintedRotation, paintedX, paintedGhostY);
+            clearShape(gc, paintedType, paintedRotation, paintedX, paintedY);
+        }
+
+        int type = block.getType();
+        int rotation = block.getRotation();
+        // Draw the shadow piece, then the current block over it
+        fillShape(gc, type, rotation, block.getX(), ghostY, Palette.SHADOW[block.getColor()]);
+        fillShape(gc, type, rotation, block.getX(), block.getY(), Palette.CELL[block.getColor()]);
+
+        paintedType = block.getType();
+        paintedRotation = block.getRotation();
+        paintedX = block.getX();
+        paintedY = block.getY();
+        paintedGhostY = ghostY;
+    }
+
+    // repaints every opponent board
+    private void drawOpponents(Map<Integer, int[][]> opponentGrids) {
+        GraphicsContext gc = opponentLayer.getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.setStroke(Color.GRAY);
+        for (int[][] opponentGrid : opponentGrids.values()) {
+            for (int i = 0; i < gridHeight; i++) {
+                for (int j = 0; j < gridWidth; j++) {
+                    int color = opponentGrid[i][j];
+                    if (color != 0) {
+                        // Semi-transparent, covering the whole cell
+                        gc.setFill(Palette.OPPONENT[Palette.index(color)]);
+                        gc.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
+                        gc.strokeRect(j * cellSize, i * cellSize, cellSize, cellSize);
+                    }
+                }
+            }
+        }
+    }
+
+    private void fillShape(GraphicsContext gc, int type, int rotation, int x, int y, Color color) {
+        for (int i = 0; i < Block.heightOf(type, rotation); i++) {
+            for (int j = 0; j < Block.widthOf(type, rotation); j++) {
+                if (Block.isFilled(type, rotation, i, j)) {
+                    fillCell(gc, color, x + j, y + i);
+                }
+            }
+        }
+    }
+
+    private void clearShape(GraphicsContext gc, int type, int rotation, int x, int y) {
+        for (int i = 0; i < Block.heightOf(type, rotation); i++) {
+            for (int j = 0; j < Block.widthOf(type, rotation); j++) {
+                if (Block.isFilled(type, rotation, i, j)) {
+                    gc.clearRect((x + j) * cellSize, (y + i) * cellSize, cellSize, cellSize);
+                }
+            }
+        }
+    }
+
+    // draws the cell
+    private void fillCell(GraphicsContext gc, Color color, int x, int y) {
+        gc.setFill(color);
+        gc.fillRect(x * cellSize + 1, y * cellSize + 1, cellSize - 2, cellSize - 2);
+    }
+}
@@ -0,0 +1,108 @@
+package com.fallingblocks;
+
+import java.util.Optional;
+
+import com.fallingblocks.network.GameClient;
+
+import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+// Main class for the Falling Blocks game
+public class FallingBlocksGame extends Application {
+
+    // Start method for the game
+    @Override
+    public void start(Stage primaryStage) {
+        // Create menu scene
+        VBox menuRoot = new VBox(20);
+        menuRoot.setAlignment(Pos.CENTER);
+        menuRoot.setPadding(new Insets(20));
+        menuRoot.setStyle("-fx-background-color: black;");
+
+        Button singlePlayerButton = new Button("Single Player");
+        Button hostGameButton = new Button("Host Game");
+        Button joinGameButton = new Button("Join Game");
+        Button versusCpuButton = new Button("Versus CPU");
+        CheckBox cpuPlaysCheckBox = new CheckBox("CPU plays online games");
+        
+        singlePlayerButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 20px; -fx-min-width: 200px;");
+        hostGameButton.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white; -fx-font-size: 20px; -fx-min-width: 200px;");
+        joinGameButton.setStyle("-fx-background-color: #FF9800; -fx-text-fill: white; -fx-font-size: 20px; -fx-min-width: 200px;");
+        versusCpuButton.setStyle("-fx-background-color: #9C27B0; -fx-text-fill: white; -fx-font-size: 20px; -fx-min-width: 200px;");
+        cpuPlaysCheckBox.setStyle("-fx-text-fill: white; -fx-font-size: 14px;");
+
+        menuRoot.getChildren().addAll(singlePlayerButton, versusCpuButton, hostGameButton, joinGameButton, cpuPlaysCheckBox);
+
+        // --renderer=canvas|pixelbuffer picks how the board is drawn, for comparing frame times
+        String renderer = getParameters().getNamed().getOrDefault("renderer",
+            System.getProperty(GameBoard.RENDERER_PROPERTY, "canvas"));
+
+        Scene menuScene = new Scene(menuRoot, 400, 400);
+        primaryStage.setTitle("Falling Blocks");
+        primaryStage.setScene(menuScene);
+        primaryStage.show();
+
+        // Handle single player button click
+        singlePlayerButton.setOnAction(e -> {
+            GameBoard gameBoard = new GameBoard(renderer);
+            gameBoard.start(primaryStage);
+        });
+
+        // Handle versus CPU button click
+        versusCpuButton.setOnAction(e -> {
+            GameBoard gameBoard = new GameBoard(renderer);
+            gameBoard.startVersusCpu();
+            gameBoard.start(primaryStage);
+        });
+
+        // Handle host game button click
+        hostGameButton.setOnAction(e -> {
+            GameBoard gameBoard = new GameBoard(renderer);
+            if (cpuPlaysCheckBox.isSelected()) {
+                gameBoard.enableBot();
+            }
+            gameBoard.start(primaryStage);
+            gameBoard.startMultiplayer("localhost");
+        });
+
+        // Handle join game button click
+        joinGameButton.setOnAction(e -> {
+            TextInputDialog dialog = new TextInputDialog("localhost");
+            dialog.setTitle("Join Game");
+            dialog.setHeaderText("Enter Server IP Address, with /<room> to join a room or /new to open one");
+            dialog.setContentText("IP Address:");
+
+            Optional<String> result = dialog.showAndWait();
+            result.ifPresent(address -> {
+                int slash = address.indexOf('/');
+                String serverIP = slash < 0 ? address : address.substring(0, slash);
+                int room = GameClient.QUICK_MATCH;
+                if (slash >= 0) {
+                    String roomName = address.substring(slash + 1).trim();
+                    try {
+                        room = roomName.equalsIgnoreCase("new") ? GameClient.NEW_ROOM : Integer.parseInt(roomName);
+                    } catch (NumberFormatException ex) {
+                        System.err.println("Not a room number: " + roomName + ", joining any open room");
+                    }
+                }
+                GameBoard gameBoard = new GameBoard(renderer);
+                if (cpuPlaysCheckBox.isSelected()) {
+                    gameBoard.enableBot();
+                }
+                gameBoard.start(primaryStage);
+                gameBoard.startMultiplayer(serverIP.trim(), room);
+            });
+        });
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,579 @@
+package com.fallingblocks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+import com.fallingblocks.engine.Playfield;
+import com.fallingblocks.engine.bot.BotPlayer;
+import com.fallingblocks.network.GameClient;
+import com.fallingblocks.network.Protocol;
+
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+// Constructor initializes game state, grid, and control flags
+public class GameBoard extends Pane {
+    private static final int GRID_WIDTH = 10;
+    private static final int GRID_HEIGHT = 20;
+    private static final int CELL_SIZE = 30;
+    private static final int FALL_SPEED = 1000; // milliseconds
+    private static final int NEXT_PIECE_X = GRID_WIDTH * CELL_SIZE + 50;
+    private static final int NEXT_PIECE_Y = 50;
+    private static final int SAVED_PIECE_X = GRID_WIDTH * CELL_SIZE + 50;
+    private static final int SAVED_PIECE_Y = 200;
+    
+    // customizable speeds in milliseconds
+    private static final int DAS_DELAY = 133;    // Delay Auto Shift (initial delay)
+    private static final int ARR_RATE = 20;      // Auto Repeat Rate (repeat rate), 0 shifts straight to the wall
+    private static final int SOFT_DROP_SPEED = 50;        // Down movement speed
+    private static final int BOT_MOVE_DELAY = 50;         // CPU input speed
+    // never handed out by the server, which numbers players from 1
+    private static final int CPU_PLAYER_ID = 0;
+    // which BoardRenderer to use: canvas or pixelbuffer
+    public static final String RENDERER_PROPERTY = "fallingblocks.renderer";
+    // file the input latency histogram is appended to at the end of each game, if set
+    public static final String LATENCY_FILE_PROPERTY = "fallingblocks.latencyFile";
+
+    // Game state variables
+    private final GameEngine engine;
+    private Timeline gameLoop;
+    private final BoardRenderer renderer;
+    // repaints at most once per display pulse; everything else only asks for a redraw
+    private AnimationTimer renderLoop;
+    private volatile boolean redrawRequested = true;
+    private volatile boolean opponentsChanged;
+    // F3 toggles the performance overlay
+    private final PerfOverlay perfOverlay;
+
+    // control flags
+    private final InputScheduler inputScheduler;
+    private boolean escapeHeld;
+    private boolean paused;
+
+    // key press to first painted frame; presses not yet on screen wait in pendingInputs
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private final long[] pendingInputs = new long[64];
+    private int pendingInputCount;
+    private boolean framePainted;
+    private int gamesPlayed;
+
+    // multiplayer variables
+    private Stage stage;
+    private GameClient gameClient;
+    // only touched on the FX thread; the client's reader thread hands boards over in mailboxes
+    private Map<Integer, int[][]> opponentGrids;
+    private final GameClient.BoardListener boardListener = this::handleGameStateUpdate;
+    private boolean isMultiplayer;
+    private Pane root;
+    private boolean waitingForStart = false;
+
+    // CPU players: one can drive this board, another can play against it
+    private BotPlayer bot;
+    private Timeline botLoop;
+    private GameEngine cpuEngine;
+    private BotPlayer cpuBot;
+    private Timeline cpuLoop;
+    private int[][] cpuGrid;
+    private int cpuMoves;
+
+    // constructor initializes game state, with the renderer named by the system property
+    public GameBoard() {
+        this(System.getProperty(RENDERER_PROPERTY, "canvas"));
+    }
+
+    public GameBoard(String rendererName) {
+        engine = new GameEngine(GRID_WIDTH, GRID_HEIGHT, System.nanoTime());
+        inputScheduler = new InputScheduler(DAS_DELAY, ARR_RATE, SOFT_DROP_SPEED, this::applyInput);
+        opponentGrids = new HashMap<>();
+        isMultiplayer = false;
+        renderer = createRenderer(rendererName);
+        perfOverlay = new PerfOverlay(renderer.getWidth(), renderer.getHeight());
+    }
+
+    // a renderer laid out like this board's, canvas or pixelbuffer; public so the benchmarks can
+    // drive one without a window
+    public static BoardRenderer createRenderer(String name) {
+        switch (name) {
+            case "canvas":
+                return new CanvasRenderer(GRID_WIDTH, GRID_HEIGHT, CELL_SIZE, NEXT_PIECE_X, NEXT_PIECE_Y, SAVED_PIECE_X, SAVED_PIECE_Y);
+            case "pixelbuffer":
+                return new PixelBufferRenderer(GRID_WIDTH, GRID_HEIGHT, CELL_SIZE, NEXT_PIECE_X, NEXT_PIECE_Y, SAVED_PIECE_X, SAVED_PIECE_Y);
+            default:
+                throw new IllegalArgumentException("Unknown renderer: " + name);
+        }
+    }
+
+    // starts the game
+    public void start(Stage stage) {
+        this.stage = stage;
+        root = new Pane();
+        root.getChildren().addAll(renderer.getView(), perfOverlay.getCanvas());
+
+        Scene scene = new Scene(root);
+        setupInputHandlers(scene);
+        // runs after the render loop in the same pulse, just before the frame goes to the screen
+        scene.addPostLayoutPulseListener(this::recordInputLatency);
+        stage.setScene(scene);
+        stage.setTitle("Falling Blocks");
+        stage.show();
+        startRenderLoop();
+
+        if (!isMultiplayer) {
+            startGameLoop();
+        }
+    }
+
+    // draws on the pulse whenever something asked for a redraw since the last frame
+    private void startRenderLoop() {
+        renderLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                inputScheduler.update(System.nanoTime());
+                if (isAuthoritative()) {
+                    gameClient.flushInputs(engine);
+                    adoptServerState();
+                } else if (isLockstep()) {
+                    gameClient.flushInputs(engine);
+                } else if (isMultiplayer && !waitingForStart) {
+                    gameClient.flushGameState(engine, now);
+                }
+                if (isMultiplayer) {
+                    gameClient.pollBoards(boardListener);
+                }
+                perfOverlay.frame(now);
+                if (!redrawRequested) return;
+                redrawRequested = false;
+                if (opponentsChanged) {
+                    opponentsChanged = false;
+                    renderer.markOpponentsDirty();
+                }
+                if (perfOverlay.isVisible()) {
+                    long start = System.nanoTime();
+                    draw();
+                    perfOverlay.recordDraw(System.nanoTime() - start);
+                } else {
+                    draw();
+                }
+                framePainted = true;
+            }
+        };
+        renderLoop.start();
+    }
+
+    // every press applied since the last painted frame is now visible
+    private void recordInputLatency() {
+        if (!framePainted) return;
+        framePainted = false;
+        long now = System.nanoTime();
+        for (int i = 0; i < pendingInputCount; i++) {
+            inputLatency.record(now - pendingInputs[i]);
+        }
+        pendingInputCount = 0;
+    }
+
+    // with a latency file set, reports the game's input latency and appends the histogram to it
+    private void exportInputLatency() {
+        if (inputLatency.getCount() == 0) return;
+        gamesPlayed++;
+        String file = System.getProperty(LATENCY_FILE_PROPERTY);
+        if (file == null) return;
+        System.out.println("Input latency: " + inputLatency.summary());
+        try (Writer writer = Files.newBufferedWriter(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            inputLatency.writeTo(writer, "game " + gamesPlayed + ", input to display latency, " + Instant.now());
+        } catch (IOException e) {
+            System.err.println("Failed to write input latency to " + file + ": " + e.getMessage());
+        }
+    }
+
+    // marks the view stale; safe from any thread, the render loop does the drawing
+    private void requestRedraw() {
+        redrawRequested = true;
+    }
+
+    // lets the CPU play this board, e.g. as the opponent of a remote player
+    public void enableBot() {
+        bot = new BotPlayer(GRID_WIDTH, GRID_HEIGHT);
+    }
+
+    // adds a CPU opponent whose board is shown like a remote player's; call before start()
+    public void startVersusCpu() {
+        cpuEngine = new GameEngine(GRID_WIDTH, GRID_HEIGHT, System.nanoTime());
+        cpuBot = new BotPlayer(GRID_WIDTH, GRID_HEIGHT);
+        cpuGrid = new int[GRID_HEIGHT][GRID_WIDTH];
+        opponentGrids.put(CPU_PLAYER_ID, cpuGrid);
+    }
+
+    // starts the multiplayer game
+    public void startMultiplayer(String serverIP) {
+        startMultiplayer(serverIP, GameClient.QUICK_MATCH);
+    }
+
+    // joins a given room, or GameClient.QUICK_MATCH / GameClient.NEW_ROOM
+    public void startMultiplayer(String serverIP, int room) {
+        isMultiplayer = true;
+        waitingForStart = true;
+        // start() already set gravity going; the match starts it again, unless the server runs it
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        stopCpuLoops();
+        gameClient = new GameClient(
+            serverIP,
+            room,
+            this::handlePlayerJoined,
+            playerId -> Platform.runLater(() -> handlePlayerLeft(playerId)),
+            () -> Platform.runLater(() -> {
+                waitingForStart = false;
+                startGameLoop();
+            })
+        );
+        
+        // connects to the multiplayer checker
+        if (gameClient.connect()) {
+            perfOverlay.setClient(gameClient);
+            System.out.println("Connected to multiplayer server at " + serverIP);
+        } else {
+            System.out.println("Failed to connect to multiplayer server at " + serverIP);
+            isMultiplayer = false;
+        }
+    }
+
+    // starts the game loop
+    private void startGameLoop() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        // an authoritative server runs gravity itself
+        if (!isAuthoritative()) {
+            gameLoop = new Timeline(new KeyFrame(Duration.millis(FALL_SPEED), e -> update()));
+            gameLoop.setCycleCount(Timeline.INDEFINITE);
+            gameLoop.play();
+        }
+        startCpuLoops();
+    }
+
+    // (re)starts the timelines feeding CPU inputs
+    private void startCpuLoops() {
+        stopCpuLoops();
+        if (bot != null) {
+            botLoop = new Timeline(new KeyFrame(Duration.millis(BOT_MOVE_DELAY), e -> {
+                if (!engine.isGameOver()) {
+                    applyInput(bot.nextInput(engine));
+                }
+            }));
+            botLoop.setCycleCount(Timeline.INDEFINITE);
+            botLoop.play();
+        }
+        if (cpuEngine != null) {
+            cpuLoop = new Timeline(new KeyFrame(Duration.millis(BOT_MOVE_DELAY), e -> updateCpu()));
+            cpuLoop.setCycleCount(Timeline.INDEFINITE);
+            cpuLoop.play();
+        }
+    }
+
+    private void stopCpuLoops() {
+        if (botLoop != null) botLoop.stop();
+        if (cpuLoop != null) cpuLoop.stop();
+    }
+
+    private void resumeCpuLoops() {
+        if (botLoop != null) botLoop.play();
+        if (cpuLoop != null && !cpuEngine.isGameOver()) cpuLoop.play();
+    }
+
+    // one CPU opponent input, with gravity at the same speed as the player's
+    private void updateCpu() {
+        if (cpuEngine.isGameOver()) {
+            cpuLoop.stop();
+            return;
+        }
+        cpuEngine.step(cpuBot.nextInput(cpuEngine));
+        if (++cpuMoves % (FALL_SPEED / BOT_MOVE_DELAY) == 0) {
+            cpuEngine.tick();
+        }
+        Playfield cpuField = cpuEngine.getPlayfield();
+        for (int i = 0; i < GRID_HEIGHT; i++) {
+            for (int j = 0; j < GRID_WIDTH; j++) {
+                cpuGrid[i][j] = cpuField.get(j, i);
+            }
+        }
+        opponentsChanged = true;
+        requestRedraw();
+    }
+
+    // updates the game loop
+    private void update() {
+        // the server's state is the only thing that moves an authoritative game, or ends it
+        if (isAuthoritative()) return;
+        if (!engine.isGameOver()) {
+            long start = System.nanoTime();
+            engine.tick();
+            perfOverlay.recordTick(System.nanoTime() - start);
+            if (engine.isGameOver()) {
+                gameOver();
+            }
+            if (isLockstep()) {
+                gameClient.recordEvent(Protocol.TICK_EVENT);
+            } else if (isMultiplayer) {
+                gameClient.markBoardChanged();
+            }
+            requestRedraw();
+        }
+    }
+
+    // draws the game over screen
+    private void gameOver() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        inputScheduler.releaseAll();
+        exportInputLatency();
+        stopCpuLoops();
+        requestRedraw();
+    }
+
+    // brings the screen up to date
+    private void draw() {
+        renderer.render(engine, opponentGrids, isMultiplayer && waitingForStart);
+    }
+
+    private void restart() {
+        // the server's game cannot be restarted, so keep showing it
+        if (isAuthoritative()) {
+            paused = false;
+            resumeCpuLoops();
+            return;
+        }
+        // Reset game state
+        engine.reset();
+        if (cpuEngine != null) {
+            cpuEngine.reset();
+        }
+        inputScheduler.releaseAll();
+        if (gameClient != null) {
+            gameClient.resynchronize();
+        }
+        paused = false;
+        inputLatency.reset();
+        pendingInputCount = 0;
+        
+        // Restart game loop
+        startGameLoop();
+        
+        // Redraw the game board
+        requestRedraw();
+    }
+
+    // sets up the input handlers
+    private void setupInputHandlers(Scene scene) {
+        scene.setOnKeyPressed(event -> {
+            KeyCode code = event.getCode();
+            if (code == KeyCode.F3) {
+                perfOverlay.toggle();
+                return;
+            }
+            if (code == KeyCode.R && engine.isGameOver()) {
+                restart();
+                return;
+            }
+            if (!engine.isGameOver() && !paused) {
+                handleKeyPress(code, System.nanoTime());
+            }
+        });
+
+        scene.setOnKeyReleased(event -> {
+            KeyCode code = event.getCode();
+            if (code == KeyCode.ESCAPE) {
+                escapeHeld = false;
+                return;
+            }
+            Input input = inputFor(code);
+            if (input != null) {
+                inputScheduler.release(input, System.nanoTime());
+            }
+        });
+    }
+
+    // handles the key press
+    private void handleKeyPress(KeyCode code, long now) {
+        if (code == KeyCode.ESCAPE) {
+            if (!escapeHeld) {
+                escapeHeld = true;
+                showPauseMenu();
+            }
+            return;
+        }
+        Input input = inputFor(code);
+        if (input != null && inputScheduler.press(input, now) && pendingInputCount < pendingInputs.length) {
+            pendingInputs[pendingInputCount++] = now;
+        }
+    }
+
+    // the game input bound to a key, or null
+    private static Input inputFor(KeyCode code) {
+        switch (code) {
+            case LEFT: return Input.LEFT;
+            case RIGHT: return Input.RIGHT;
+            case DOWN: return Input.SOFT_DROP;
+            case UP: return Input.ROTATE;
+            case SPACE: return Input.HARD_DROP;
+            case C: return Input.HOLD;
+            default: return null;
+        }
+    }
+
+    // copies only the rows that changed into the opponent's grid, which is kept between updates;
+    // runs on the FX thread, once a frame at most per opponent
+    private void handleGameStateUpdate(int playerId, byte[] cells, int width, int fromRow, int toRow) {
+        if (width != GRID_WIDTH || cells.length != GRID_WIDTH * GRID_HEIGHT) {
+            // a peer can send these every frame, so only the first is logged
+            if (perfOverlay.recordIgnoredBoard() == 1) {
+                System.err.println("Ignoring board of " + cells.length + " cells from player " + playerId
+                    + "; further ones are counted on the F3 overlay");
+            }
+            return;
+        }
+        int[][] opponentGrid = opponentGrids.computeIfAbsent(playerId, id -> new int[GRID_HEIGHT][GRID_WIDTH]);
+        for (int i = fromRow; i <= toRow; i++) {
+            int[] row = opponentGrid[i];
+            for (int j = 0; j < GRID_WIDTH; j++) {
+                row[j] = cells[i * GRID_WIDTH + j];
+            }
+        }
+
+        opponentsChanged = true;
+        requestRedraw();
+    }
+
+    // handles the player joined
+    private void handlePlayerJoined(int playerId) {
+        System.out.println("Player joined: " + playerId);
+    }
+
+    // handles the player left
+    private void handlePlayerLeft(int playerId) {
+        System.out.println("Player left: " + playerId);
+        opponentGrids.remove(playerId);
+        opponentsChanged = true;
+        requestRedraw();
+    }
+
+    // peers replay this board from its inputs instead of being sent it
+    private boolean isLockstep() {
+        return isMultiplayer && gameClient != null && gameClient.isLockstep();
+    }
+
+    // the server runs this board from our inputs and sends it back
+    private boolean isAuthoritative() {
+        return isMultiplayer && gameClient != null && gameClient.isAuthoritative();
+    }
+
+    // shows the newest game the server sent, ending ours when the server's ended
+    private void adoptServerState() {
+        boolean wasOver = engine.isGameOver();
+        if (!gameClient.pollOwnState(engine)) return;
+        if (!wasOver && engine.isGameOver()) {
+            gameOver();
+        }
+        requestRedraw();
+    }
+
+    // shows the pause menu
+    private void showPauseMenu() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        stopCpuLoops();
+        // keys released while the menu has focus never reach the scene, so start clean
+        inputScheduler.releaseAll();
+        paused = true;
+        
+        VBox pauseMenu = new VBox(10);
+        pauseMenu.setAlignment(Pos.CENTER);
+        pauseMenu.setStyle("-fx-background-color: rgba(0, 0, 0, 0.8); -fx-padding: 20;");
+        
+        Label titleLabel = new Label("PAUSED");
+        titleLabel.setStyle("-fx-font-size: 24; -fx-text-fill: white;");
+        
+        Button resumeButton = new Button("Resume");
+        Button restartButton = new Button("Restart");
+        Button quitButton = new Button("Quit");
+        
+        // Style the buttons
+        String buttonStyle = "-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 14; -fx-padding: 10 20; -fx-min-width: 120;";
+        resumeButton.setStyle(buttonStyle);
+        restartButton.setStyle(buttonStyle);
+        quitButton.setStyle(buttonStyle);
+        
+        resumeButton.setOnAction(e -> {
+            root.getChildren().remove(pauseMenu);
+            paused = false;
+            if (gameLoop != null) {
+                gameLoop.play();
+            }
+            resumeCpuLoops();
+        });
+        
+        restartButton.setOnAction(e -> {
+            root.getChildren().remove(pauseMenu);
+            restart();
+            if (gameLoop != null) {
+                gameLoop.play();
+            }
+        });
+        
+        quitButton.setOnAction(e -> {
+            Platform.exit();
+        });
+        
+        pauseMenu.getChildren().addAll(titleLabel, resumeButton, restartButton, quitButton);
+        pauseMenu.setMaxWidth(200);
+        
+        // Center the pause menu on the screen
+        pauseMenu.setLayoutX((renderer.getWidth() - pauseMenu.getMaxWidth()) / 2);
+        pauseMenu.setLayoutY((renderer.getHeight() - pauseMenu.getHeight()) / 2);
+        
+        root.getChildren().add(pauseMenu);
+    }
+
+    // applies a player input to the engine and asks for a redraw; false if the input changed nothing
+    private boolean applyInput(Input input) {
+        if (engine.isGameOver()) return false;
+        if (isAuthoritative()) {
+            // no prediction: the move shows once the server's state comes back, so whether it
+            // changed anything is not known yet, and an instant shift sends one per frame
+            gameClient.recordEvent((byte) input.ordinal());
+            return false;
+        }
+        boolean changed = engine.step(input);
+        if (changed && isLockstep()) {
+            gameClient.recordEvent((byte) input.ordinal());
+        } else if (changed && isMultiplayer) {
+            gameClient.markBoardChanged();
+        }
+        if (engine.isGameOver()) {
+            gameOver();
+        }
+        requestRedraw();
+        return changed;
+    }
+}
@@ -0,0 +1,144 @@
+package com.fallingblocks;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.GameEngine;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+// Side panel (next, saved, score) plus the waiting and game over overlays, on a canvas of its own
+// that is repainted only when one of the values it shows changes. Shared by every renderer.
+class HudLayer {
+    private static final Font LABEL_FONT = new Font("Arial", 20);
+    private static final Font WAITING_FONT = new Font("Arial", 40);
+    private static final Font GAME_OVER_FONT = new Font("Arial", 50);
+    private static final Font FINAL_SCORE_FONT = new Font("Arial", 30);
+    private static final Font RESTART_FONT = new Font("Arial", 25);
+
+    private final Canvas canvas;
+    private final int cellSize;
+    private final int nextPieceX;
+    private final int nextPieceY;
+    private final int savedPieceX;
+    private final int savedPieceY;
+
+    // what the panel currently shows
+    private boolean valid;
+    private int paintedScore;
+    private int paintedNextType;
+    private int paintedSavedType;
+    private int paintedSavedRotation;
+    private boolean paintedWaiting;
+    private boolean paintedGameOver;
+
+    HudLayer(double width, double height, int cellSize, int nextPieceX, int nextPieceY, int savedPieceX, int savedPieceY) {
+        canvas = new Canvas(width, height);
+        this.cellSize = cellSize;
+        this.nextPieceX = nextPieceX;
+        this.nextPieceY = nextPieceY;
+        this.savedPieceX = savedPieceX;
+        this.savedPieceY = savedPieceY;
+    }
+
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    // repaints the panel if anything on it changed
+    void render(GameEngine engine, boolean waiting) {
+        int nextType = engine.getPieceQueue().peek(0);
+        Block saved = engine.getSavedBlock();
+        int savedType = saved == null ? -1 : saved.getType();
+        int savedRotation = saved == null ? 0 : saved.getRotation();
+        if (valid && paintedScore == engine.getScore() && paintedNextType == nextType
+            && paintedSavedType == savedType && paintedSavedRotation == savedRotation
+            && paintedWaiting == waiting && paintedGameOver == engine.isGameOver()) {
+            return;
+        }
+        valid = true;
+        paintedScore = engine.getScore();
+        paintedNextType = nextType;
+        paintedSavedType = savedType;
+        paintedSavedRotation = savedRotation;
+        paintedWaiting = waiting;
+        paintedGameOver = engine.isGameOver();
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        // If waiting for multiplayer start, show only the waiting message
+        if (waiting) {
+            gc.setFill(Color.BLACK);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            gc.setFill(Color.WHITE);
+            gc.setFont(WAITING_FONT);
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.fillText("Waiting for another player...", canvas.getWidth() / 2, canvas.getHeight() / 2);
+            return;
+        }
+
+        // Draw the next block
+        fillShape(gc, nextType, 0, nextPieceX / cellSize, nextPieceY / cellSize, Palette.CELL[nextType + 1]);
+
+        // Draw the saved block
+        if (saved != null) {
+            fillShape(gc, saved.getType(), saved.getRotation(), savedPieceX / cellSize, savedPieceY / cellSize, Palette.CELL[saved.getColor()]);
+        }
+
+        // Draw labels
+        gc.setFill(Color.WHITE);
+        gc.setFont(LABEL_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText("Next:", nextPieceX, nextPieceY - 20);
+        gc.fillText("Saved:", savedPieceX, savedPieceY - 20);
+        gc.fillText("Score: " + engine.getScore(), nextPieceX, nextPieceY + 100);
+
+        // Draw game over screen if game is over
+        if (engine.isGameOver()) {
+            drawGameOver(gc, engine.getScore());
+        }
+    }
+
+    // draws the game over screen
+    private void drawGameOver(GraphicsContext gc, int score) {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+
+        // Draw semi-transparent overlay
+        gc.setFill(Color.BLACK.deriveColor(0, 1, 1, 0.8));
+        gc.fillRect(0, 0, width, height);
+
+        // Draw game over text
+        gc.setFill(Color.RED);
+        gc.setFont(GAME_OVER_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.fillText("GAME OVER", width / 2, height / 2 - 60);
+
+        // Draw final score
+        gc.setFill(Color.WHITE);
+        gc.setFont(FINAL_SCORE_FONT);
+        gc.fillText("Final Score: " + score, width / 2, height / 2);
+
+        // Draw restart instructions
+        gc.setFont(RESTART_FONT);
+        gc.fillText("Press R to Restart", width / 2, height / 2 + 60);
+    }
+
+    private void fillShape(GraphicsContext gc, int type, int rotation, int x, int y, Color color) {
+        gc.setFill(color);
+        for (int i = 0; i < Block.heightOf(type, rotation); i++) {
+            for (int j = 0; j < Block.widthOf(type, rotation); j++) {
+                if (Block.isFilled(type, rotation, i, j)) {
+                    gc.fillRect((x + j) * cellSize + 1, (y + i) * cellSize + 1, cellSize - 2, cellSize - 2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.fallingblocks;
+
+import java.util.function.Predicate;
+
+import com.fallingblocks.engine.Input;
+
+// DAS, ARR and soft drop timing for every held key, polled from the render loop.
+// Held inputs live in a bitset, and every repeat that fell due since the last poll is replayed,
+// so repeat timing follows the nanosecond clock rather than the frame rate.
+// Not thread-safe; press, release and update all run on the FX thread.
+class InputScheduler {
+    // bounds the catch-up after a stall; the piece hits a wall long before this
+    private static final int MAX_REPEATS = 64;
+
+    private final long dasNanos;
+    private final long arrNanos;
+    private final long softDropNanos;
+    // applies an input, returning false when it did nothing (e.g. blocked by a wall)
+    private final Predicate<Input> sink;
+
+    // one bit per Input ordinal
+    private long held;
+    // the most recently pressed of the held LEFT and RIGHT, null if neither
+    private Input shiftDirection;
+    private long nextShift;
+    private long nextSoftDrop;
+
+    InputScheduler(long dasMillis, long arrMillis, long softDropMillis, Predicate<Input> sink) {
+        this.dasNanos = dasMillis * 1_000_000;
+        this.arrNanos = arrMillis * 1_000_000;
+        this.softDropNanos = softDropMillis * 1_000_000;
+        this.sink = sink;
+    }
+
+    // applies the input right away and starts timing its repeats; ignores auto-repeated key events.
+    // True if the input changed the game, so there is something new to see.
+    boolean press(Input input, long now) {
+        long bit = 1L << input.ordinal();
+        if ((held & bit) != 0) {
+            return false;
+        }
+        held |= bit;
+        switch (input) {
+            case LEFT:
+            case RIGHT:
+                shiftDirection = input;
+                nextShift = now + dasNanos;
+                break;
+            case SOFT_DROP:
+                nextSoftDrop = now + softDropNanos;
+                break;
+            default:
+                break;
+        }
+        return sink.test(input);
+    }
+
+    void release(Input input, long now) {
+        held &= ~(1L << input.ordinal());
+        if (input == shiftDirection) {
+            // fall back to the other direction if it is still held, charging DAS again
+            Input other = input == Input.LEFT ? Input.RIGHT : Input.LEFT;
+            shiftDirection = isHeld(other) ? other : null;
+            nextShift = now + dasNanos;
+        }
+    }
+
+    // forgets every held key, e.g. on restart or when the pause menu takes focus
+    void releaseAll() {
+        held = 0;
+        shiftDirection = null;
+    }
+
+    boolean isHeld(Input input) {
+        return (held & (1L << input.ordinal())) != 0;
+    }
+
+    // replays the repeats that fell due up to now
+    void update(long now) {
+        if (shiftDirection != null && nextShift <= now) {
+            if (arrNanos == 0) {
+                // instant shift: straight to the wall, and keep it there while held
+                int shifts = 0;
+                while (shifts < MAX_REPEATS && sink.test(shiftDirection)) {
+                    shifts++;
+                }
+            } else {
+                nextShift = repeat(shiftDirection, nextShift, arrNanos, now);
+            }
+        }
+        if (isHeld(Input.SOFT_DROP) && nextSoftDrop <= now) {
+            nextSoftDrop = repeat(Input.SOFT_DROP, nextSoftDrop, softDropNanos, now);
+        }
+    }
+
+    // fires one input per period from due up to now and returns when the next one is due
+    private long repeat(Input input, long due, long period, long now) {
+        for (int i = 0; due <= now; i++) {
+            if (i == MAX_REPEATS) {
+                return now + period;
+            }
+            sink.test(input);
+            due += period;
+        }
+        return due;
+    }
+}
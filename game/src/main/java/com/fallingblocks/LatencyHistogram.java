@@ -0,0 +1,111 @@
+package com.fallingblocks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+// Log-linear histogram of nanosecond latencies in the style of HdrHistogram: values below 128
+// are exact, above that each power of two is split into 64 buckets, so any value is kept to
+// within about 1.6%. Recording is an index computation and an array increment, with no allocation.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    // enough buckets for every non-negative long
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * HALF_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long max;
+    private double sum;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+        sum = 0;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    // smallest recorded value (to bucket precision) that the given percent of samples do not exceed
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (top - HALF_COUNT);
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long top = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    // one line summary in milliseconds
+    public String summary() {
+        return String.format("p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms (%d samples)",
+            getValueAtPercentile(50) / 1e6, getValueAtPercentile(99) / 1e6, getValueAtPercentile(99.9) / 1e6,
+            max / 1e6, totalCount);
+    }
+
+    // writes the percentiles and the non-empty buckets, values in milliseconds
+    public void writeTo(Writer writer, String title) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        out.println("# " + title);
+        out.printf("samples %d, mean %.3f ms, max %.3f ms%n", totalCount, getMean() / 1e6, max / 1e6);
+        for (double percentile : new double[] {50, 90, 99, 99.9, 99.99}) {
+            out.printf("p%-6s %10.3f ms%n", percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile),
+                getValueAtPercentile(percentile) / 1e6);
+        }
+        out.println("# bucket upper bound (ms), count, cumulative percentile");
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] == 0) continue;
+            seen += counts[i];
+            out.printf("%12.3f %8d %9.4f%n", highestValueOf(i) / 1e6, counts[i], 100.0 * seen / totalCount);
+        }
+        out.println();
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Failed to write latency histogram");
+        }
+    }
+}
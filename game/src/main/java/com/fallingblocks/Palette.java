@@ -0,0 +1,48 @@
+package com.fallingblocks;
+
+import javafx.scene.paint.Color;
+
+// Cell colors resolved once per value instead of on every cell drawn
+final class Palette {
+    static final Color[] CELL = new Color[9];
+    static final Color[] SHADOW = new Color[9];
+    static final Color[] OPPONENT = new Color[9];
+
+    static {
+        for (int value = 0; value < CELL.length; value++) {
+            CELL[value] = colorForValue(value);
+            SHADOW[value] = CELL[value].deriveColor(0, 1, 1, 0.3);
+            OPPONENT[value] = CELL[value].deriveColor(0, 1, 1, 0.5);
+        }
+    }
+
+    private Palette() {
+    }
+
+    // the index of a received cell value in the tables; anything unknown shows white, like 8
+    static int index(int value) {
+        return value >= 0 && value < CELL.length ? value : CELL.length - 1;
+    }
+
+    // gets the color for the value
+    static Color colorForValue(int value) {
+        switch (value) {
+            case 1: return Color.CYAN;
+            case 2: return Color.BLUE;
+            case 3: return Color.ORANGE;
+            case 4: return Color.YELLOW;
+            case 5: return Color.GREEN;
+            case 6: return Color.PURPLE;
+            case 7: return Color.RED;
+            default: return Color.WHITE;
+        }
+    }
+
+    // packs a color as a non-premultiplied ARGB int
+    static int argb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+            | (int) Math.round(color.getRed() * 255) << 16
+            | (int) Math.round(color.getGreen() * 255) << 8
+            | (int) Math.round(color.getBlue() * 255);
+    }
+}
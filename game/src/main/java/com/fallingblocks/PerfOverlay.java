@@ -0,0 +1,251 @@
+package com.fallingblocks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fallingblocks.network.GameClient;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+// Toggleable diagnostics drawn over the board:
+// FPS with a graph of frame times, and the longest logic tick and draw() of each sample.
+// FX thread allocation rate and GC activity, from the platform MXBeans.
+// In multiplayer, message rates, bytes sent and board updates coalesced.
+// Also deltas and keyframes sent, and the round trip time.
+// Datagrams sent and dropped, while boards travel over UDP.
+// While hidden every hook returns after one field read.
+// Opponent boards of the wrong size are still counted while hidden, and shown after the RTT.
+class PerfOverlay {
+    private static final int FRAME_SAMPLES = 120;
+    private static final long SAMPLE_INTERVAL_NANOS = 500_000_000L;
+    private static final double PANEL_WIDTH = 240;
+    private static final double PANEL_HEIGHT = 182;
+    private static final double GRAPH_HEIGHT = 40;
+    // frame times at or above this fill the graph; 60 Hz frames sit at the middle line
+    private static final double GRAPH_MAX_MILLIS = 33.4;
+    private static final Font FONT = Font.font("Monospaced", 12);
+
+    private final Canvas canvas;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private GameClient client;
+    private boolean visible;
+
+    // frame intervals, newest at frameIndex - 1
+    private final long[] frameNanos = new long[FRAME_SAMPLES];
+    private int frameIndex;
+    private long lastFrame;
+
+    // worst tick and draw since the last sample
+    private long maxTickNanos;
+    private long maxDrawNanos;
+
+    // values shown, refreshed every SAMPLE_INTERVAL_NANOS
+    private long sampleStart;
+    private int sampleFrames;
+    private double fps;
+    private double tickMillis;
+    private double drawMillis;
+    private double allocatedPerSecond;
+    private long lastAllocated;
+    private long lastGcCount;
+    private long gcCount;
+    private long gcMillis;
+    private long gcCountDelta;
+    private double messagesInPerSecond;
+    private double messagesOutPerSecond;
+    private long lastMessagesIn;
+    private long lastMessagesOut;
+    private double bytesOutPerSecond;
+    private double coalescedPerSecond;
+    private long lastBytesOut;
+    private long lastCoalesced;
+    private double deltasPerSecond;
+    private double keyframesPerSecond;
+    private long lastDeltas;
+    private long lastKeyframes;
+    private double datagramsPerSecond;
+    private double droppedPerSecond;
+    private long lastDatagrams;
+    private long lastDropped;
+    // opponent boards of the wrong size, counted even while hidden
+    private long ignoredBoards;
+
+    PerfOverlay(double width, double height) {
+        canvas = new Canvas(width, height);
+        canvas.setMouseTransparent(true);
+        canvas.setVisible(false);
+    }
+
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    // the connection whose traffic is shown, null in single player
+    void setClient(GameClient client) {
+        this.client = client;
+    }
+
+    boolean isVisible() {
+        return visible;
+    }
+
+    void toggle() {
+        visible = !visible;
+        canvas.setVisible(visible);
+        if (visible) {
+            // start from fresh counters instead of whatever piled up while hidden
+            lastFrame = 0;
+            frameIndex = 0;
+            Arrays.fill(frameNanos, 0);
+            sampleStart = 0;
+        } else {
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+    }
+
+    void recordTick(long nanos) {
+        if (visible) maxTickNanos = Math.max(maxTickNanos, nanos);
+    }
+
+    void recordDraw(long nanos) {
+        if (visible) maxDrawNanos = Math.max(maxDrawNanos, nanos);
+    }
+
+    // returns how many have been ignored so far, this one included
+    long recordIgnoredBoard() {
+        return ++ignoredBoards;
+    }
+
+    // called once per pulse by the render loop
+    void frame(long now) {
+        if (!visible) return;
+        if (lastFrame != 0) {
+            frameNanos[frameIndex] = now - lastFrame;
+            frameIndex = (frameIndex + 1) % FRAME_SAMPLES;
+            sampleFrames++;
+        }
+        lastFrame = now;
+        if (sampleStart == 0) {
+            resetSample(now);
+        } else if (now - sampleStart >= SAMPLE_INTERVAL_NANOS) {
+            sample(now);
+        }
+        paint();
+    }
+
+    private void resetSample(long now) {
+        sampleStart = now;
+        sampleFrames = 0;
+        maxTickNanos = 0;
+        maxDrawNanos = 0;
+        lastAllocated = allocatedBytes();
+        lastGcCount = totalGcCount();
+        if (client != null) {
+            lastMessagesIn = client.getMessagesReceived();
+            lastMessagesOut = client.getMessagesSent();
+            lastBytesOut = client.getBytesWritten();
+            lastCoalesced = client.getBoardsCoalesced();
+            lastDeltas = client.getDeltasSent();
+            lastKeyframes = client.getKeyframesSent();
+            lastDatagrams = client.getDatagramsSent();
+            lastDropped = client.getDatagramsDropped();
+        }
+    }
+
+    private void sample(long now) {
+        double seconds = (now - sampleStart) / 1e9;
+        fps = sampleFrames / seconds;
+        tickMillis = maxTickNanos / 1e6;
+        drawMillis = maxDrawNanos / 1e6;
+        long allocated = allocatedBytes();
+        allocatedPerSecond = (allocated - lastAllocated) / seconds;
+        gcCount = totalGcCount();
+        gcMillis = totalGcMillis();
+        gcCountDelta = gcCount - lastGcCount;
+        if (client != null) {
+            messagesInPerSecond = (client.getMessagesReceived() - lastMessagesIn) / seconds;
+            messagesOutPerSecond = (client.getMessagesSent() - lastMessagesOut) / seconds;
+            bytesOutPerSecond = (client.getBytesWritten() - lastBytesOut) / seconds;
+            coalescedPerSecond = (client.getBoardsCoalesced() - lastCoalesced) / seconds;
+            deltasPerSecond = (client.getDeltasSent() - lastDeltas) / seconds;
+            keyframesPerSecond = (client.getKeyframesSent() - lastKeyframes) / seconds;
+            datagramsPerSecond = (client.getDatagramsSent() - lastDatagrams) / seconds;
+            droppedPerSecond = (client.getDatagramsDropped() - lastDropped) / seconds;
+            client.sendPing();
+        }
+        resetSample(now);
+    }
+
+    private void paint() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+        gc.setFill(Color.BLACK.deriveColor(0, 1, 1, 0.75));
+        gc.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+
+        gc.setFill(Color.LIME);
+        gc.setFont(FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        double y = 14;
+        gc.fillText(String.format("FPS %5.1f", fps), 6, y);
+        gc.fillText(String.format("tick %5.2f ms  draw %5.2f ms", tickMillis, drawMillis), 6, y += 14);
+        gc.fillText(String.format("alloc %7.1f KB/s (FX thread)", allocatedPerSecond / 1024), 6, y += 14);
+        gc.fillText(String.format("GC %d (+%d) %d ms total", gcCount, gcCountDelta, gcMillis), 6, y += 14);
+        if (client != null) {
+            gc.fillText(String.format("msgs in %5.0f/s  out %5.0f/s", messagesInPerSecond, messagesOutPerSecond), 6, y += 14);
+            gc.fillText(String.format("out %6.0f B/s  coalesced %4.0f/s", bytesOutPerSecond, coalescedPerSecond), 6, y += 14);
+            gc.fillText(String.format("deltas %4.0f/s  keyframes %4.0f/s", deltasPerSecond, keyframesPerSecond), 6, y += 14);
+            gc.fillText(client.isUsingUdp()
+                ? String.format("udp out %4.0f/s  dropped %4.0f/s", datagramsPerSecond, droppedPerSecond)
+                : "udp  -", 6, y += 14);
+            long rtt = client.getRoundTripNanos();
+            gc.fillText((rtt < 0 ? "RTT  -      " : String.format("RTT %6.2f ms", rtt / 1e6))
+                + String.format("  ignored %d", ignoredBoards), 6, y += 14);
+        }
+
+        // frame time graph, oldest on the left, with a line at 16.7 ms
+        double graphTop = PANEL_HEIGHT - GRAPH_HEIGHT - 6;
+        double barWidth = (PANEL_WIDTH - 12) / FRAME_SAMPLES;
+        gc.setStroke(Color.GRAY);
+        gc.strokeLine(6, graphTop + GRAPH_HEIGHT / 2, PANEL_WIDTH - 6, graphTop + GRAPH_HEIGHT / 2);
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            long nanos = frameNanos[(frameIndex + i) % FRAME_SAMPLES];
+            if (nanos == 0) continue;
+            double millis = nanos / 1e6;
+            double barHeight = Math.min(1, millis / GRAPH_MAX_MILLIS) * GRAPH_HEIGHT;
+            gc.setFill(millis > GRAPH_MAX_MILLIS / 2 + 1 ? Color.RED : Color.LIME);
+            gc.fillRect(6 + i * barWidth, graphTop + GRAPH_HEIGHT - barHeight, Math.max(1, barWidth - 0.5), barHeight);
+        }
+    }
+
+    // bytes allocated by the calling (FX) thread, -1 where the JVM cannot tell
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,271 @@
+package com.fallingblocks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.fallingblocks.engine.Block;
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Playfield;
+
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+// Rasterizes the playfield straight into a direct IntBuffer shared with a WritableImage,
+// copying pre-baked cell sprites for only the cells whose contents changed and handing JavaFX
+// just the rectangle around them. The side panel and overlays stay on a HudLayer canvas.
+public class PixelBufferRenderer implements BoardRenderer {
+    // sprite index per cell: 0 empty, then locked, ghost and falling piece cells per color value
+    private static final int LOCKED = 0;
+    private static final int GHOST = 9;
+    private static final int FALLING = 18;
+    private static final int SPRITE_COUNT = 27;
+    private static final int GRID_LINE = Palette.argb(Color.GRAY);
+    private static final int BACKGROUND = Palette.argb(Color.BLACK);
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int cellSize;
+    private final int imageWidth;
+
+    private final Pane view;
+    private final HudLayer hud;
+    private final IntBuffer pixels;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+
+    private final int[][] sprites = new int[SPRITE_COUNT][];
+    // opponent cells are blended over whatever is below them
+    private final int[][] opponentSprites = new int[Palette.OPPONENT.length][];
+    private final int[] tile;
+
+    // sprite index wanted this frame and the one currently in the buffer, -1 when unknown
+    private final int[] wanted;
+    private final int[] shown;
+    private final int[] changed;
+    private int changedCount;
+    private boolean opponentsDirty = true;
+    private Map<Integer, int[][]> opponentGrids;
+
+    public PixelBufferRenderer(int gridWidth, int gridHeight, int cellSize, int nextPieceX, int nextPieceY, int savedPieceX, int savedPieceY) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellSize = cellSize;
+
+        // one extra pixel for the closing grid line on the right and bottom
+        imageWidth = gridWidth * cellSize + 1;
+        int imageHeight = gridHeight * cellSize + 1;
+        pixels = ByteBuffer.allocateDirect(imageWidth * imageHeight * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<>(imageWidth, imageHeight, pixels, PixelFormat.getIntArgbPreInstance());
+        ImageView board = new ImageView(new WritableImage(pixelBuffer));
+
+        double width = (gridWidth + 5) * cellSize;
+        double height = gridHeight * cellSize;
+        hud = new HudLayer(width, height, cellSize, nextPieceX, nextPieceY, savedPieceX, savedPieceY);
+        view = new Pane(board, hud.getCanvas());
+        view.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
+        view.setPrefSize(width, height);
+
+        tile = new int[cellSize * cellSize];
+        wanted = new int[gridWidth * gridHeight];
+        shown = new int[gridWidth * gridHeight];
+        changed = new int[gridWidth * gridHeight];
+        bakeSprites();
+        drawClosingLines(imageHeight);
+        invalidate();
+    }
+
+    // every cell look the board can have, as opaque premultiplied pixels
+    private void bakeSprites() {
+        sprites[0] = cellSprite(BACKGROUND);
+        for (int value = 1; value < Palette.CELL.length; value++) {
+            sprites[LOCKED + value] = cellSprite(Palette.argb(Palette.CELL[value]));
+            sprites[GHOST + value] = cellSprite(blend(Palette.argb(Palette.SHADOW[value]), BACKGROUND));
+            sprites[FALLING + value] = sprites[LOCKED + value];
+
+            // Semi-transparent, covering the whole cell, with a gray outline
+            int[] overlay = new int[cellSize * cellSize];
+            int fill = Palette.argb(Palette.OPPONENT[value]);
+            for (int py = 0; py < cellSize; py++) {
+                for (int px = 0; px < cellSize; px++) {
+                    boolean edge = px == 0 || py == 0 || px == cellSize - 1 || py == cellSize - 1;
+                    overlay[py * cellSize + px] = edge ? GRID_LINE : fill;
+                }
+            }
+            opponentSprites[value] = overlay;
+        }
+    }
+
+    // grid line along the top and left, a one pixel gap, then the fill
+    private int[] cellSprite(int fill) {
+        int[] sprite = new int[cellSize * cellSize];
+        for (int py = 0; py < cellSize; py++) {
+            for (int px = 0; px < cellSize; px++) {
+                int color = BACKGROUND;
+                if (px == 0 || py == 0) {
+                    color = GRID_LINE;
+                } else if (px < cellSize - 1 && py < cellSize - 1) {
+                    color = fill;
+                }
+                sprite[py * cellSize + px] = color;
+            }
+        }
+        return sprite;
+    }
+
+    private void drawClosingLines(int imageHeight) {
+        for (int y = 0; y < imageHeight; y++) {
+            pixels.put(y * imageWidth + imageWidth - 1, GRID_LINE);
+        }
+        for (int x = 0; x < imageWidth; x++) {
+            pixels.put((imageHeight - 1) * imageWidth + x, GRID_LINE);
+        }
+    }
+
+    @Override
+    public Node getView() {
+        return view;
+    }
+
+    @Override
+    public double getWidth() {
+        return hud.getCanvas().getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return hud.getCanvas().getHeight();
+    }
+
+    @Override
+    public void markOpponentsDirty() {
+        opponentsDirty = true;
+    }
+
+    @Override
+    public void invalidate() {
+        Arrays.fill(shown, -1);
+        hud.invalidate();
+        opponentsDirty = true;
+    }
+
+    @Override
+    public void render(GameEngine engine, Map<Integer, int[][]> opponentGrids, boolean waiting) {
+        collectChangedCells(engine);
+        if (opponentsDirty) {
+            // opponent boards carry no change tracking, so every cell is redrawn with them
+            changedCount = 0;
+            for (int cell = 0; cell < wanted.length; cell++) {
+                changed[changedCount++] = cell;
+            }
+            opponentsDirty = false;
+        }
+        if (changedCount > 0) {
+            this.opponentGrids = opponentGrids;
+            if (Platform.isFxApplicationThread()) {
+                pixelBuffer.updateBuffer(this::drawChangedCells);
+            } else {
+                // a board drawn off the FX thread (the benchmarks) is not on screen, so there is nothing to upload
+                drawChangedCells(pixelBuffer);
+            }
+        }
+        hud.render(engine, waiting);
+    }
+
+    // works out the sprite for every cell and lists the ones that differ from the buffer
+    private void collectChangedCells(GameEngine engine) {
+        Playfield playfield = engine.getPlayfield();
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                wanted[y * gridWidth + x] = LOCKED + playfield.get(x, y);
+            }
+        }
+        playfield.clearDirty();
+
+        Block block = engine.getCurrentBlock();
+        int ghostY = engine.isGameOver() ? block.getY() : engine.getDropPosition();
+        markShape(block.getType(), block.getRotation(), block.getX(), ghostY, GHOST + block.getColor());
+        markShape(block.getType(), block.getRotation(), block.getX(), block.getY(), FALLING + block.getColor());
+
+        changedCount = 0;
+        for (int cell = 0; cell < wanted.length; cell++) {
+            if (wanted[cell] != shown[cell]) {
+                changed[changedCount++] = cell;
+            }
+        }
+    }
+
+    private void markShape(int type, int rotation, int x, int y, int sprite) {
+        for (int i = 0; i < Block.heightOf(type, rotation); i++) {
+            for (int j = 0; j < Block.widthOf(type, rotation); j++) {
+                int cellX = x + j;
+                int cellY = y + i;
+                if (Block.isFilled(type, rotation, i, j) && cellX >= 0 && cellX < gridWidth && cellY >= 0 && cellY < gridHeight) {
+                    wanted[cellY * gridWidth + cellX] = sprite;
+                }
+            }
+        }
+    }
+
+    // called back by JavaFX on the application thread; returns the area it has to upload
+    private Rectangle2D drawChangedCells(PixelBuffer<IntBuffer> buffer) {
+        int minX = gridWidth;
+        int minY = gridHeight;
+        int maxX = -1;
+        int maxY = -1;
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            int x = cell % gridWidth;
+            int y = cell / gridWidth;
+            drawCell(x, y, wanted[cell]);
+            shown[cell] = wanted[cell];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        return new Rectangle2D(minX * cellSize, minY * cellSize, (maxX - minX + 1) * cellSize, (maxY - minY + 1) * cellSize);
+    }
+
+    // copies a sprite into the buffer, blending any opponent cells over it first
+    private void drawCell(int x, int y, int sprite) {
+        int[] source = sprites[sprite];
+        if (!opponentGrids.isEmpty()) {
+            System.arraycopy(source, 0, tile, 0, tile.length);
+            for (int[][] opponentGrid : opponentGrids.values()) {
+                int color = opponentGrid[y][x];
+                if (color != 0) {
+                    int[] overlay = opponentSprites[Palette.index(color)];
+                    for (int p = 0; p < tile.length; p++) {
+                        tile[p] = blend(overlay[p], tile[p]);
+                    }
+                }
+            }
+            source = tile;
+        }
+        int offset = y * cellSize * imageWidth + x * cellSize;
+        for (int row = 0; row < cellSize; row++) {
+            pixels.put(offset + row * imageWidth, source, row * cellSize, cellSize);
+        }
+    }
+
+    // source-over of a straight ARGB color onto an opaque one
+    private static int blend(int source, int destination) {
+        int alpha = source >>> 24;
+        int inverse = 255 - alpha;
+        int r = (((source >> 16) & 0xFF) * alpha + ((destination >> 16) & 0xFF) * inverse) / 255;
+        int g = (((source >> 8) & 0xFF) * alpha + ((destination >> 8) & 0xFF) * inverse) / 255;
+        int b = ((source & 0xFF) * alpha + (destination & 0xFF) * inverse) / 255;
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+}
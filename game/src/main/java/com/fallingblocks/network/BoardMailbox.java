@@ -0,0 +1,82 @@
+package com.fallingblocks.network;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// The newest board of one opponent, passed from the reader thread to the thread that draws it
+// without either side waiting. Three buffers rotate: the reader copies each board into its own
+// and swaps it in as the ready one, the drawer swaps the ready one out once a frame. A board the
+// drawer never got to is simply overwritten, so a fast opponent costs a copy per message on the
+// reader and at most one board per frame on the drawer. The rows a board changed add up over
+// the boards it overwrites, so the drawer can still copy just those.
+final class BoardMailbox {
+    private static final class Snapshot {
+        byte[] cells = new byte[0];
+        int width;
+        int height;
+        int fromRow;
+        int toRow;
+    }
+
+    // posted and not yet taken, or null
+    private final AtomicReference<Snapshot> ready = new AtomicReference<>();
+    // handed back by the drawer for the reader to fill next, or null
+    private final AtomicReference<Snapshot> spare = new AtomicReference<>();
+    // only touched by the reader
+    private Snapshot back = new Snapshot();
+    // only touched by the drawer
+    private Snapshot front;
+
+    // reader thread: publishes a copy of the board whose rows fromRow..toRow changed, replacing
+    // one not taken yet
+    void post(byte[] cells, int width, int height, int fromRow, int toRow) {
+        if (back.cells.length != cells.length) {
+            back.cells = new byte[cells.length];
+        }
+        System.arraycopy(cells, 0, back.cells, 0, cells.length);
+        back.width = width;
+        back.height = height;
+        // only the drawer empties ready, so this runs at most twice
+        Snapshot replaced;
+        do {
+            replaced = ready.get();
+            back.fromRow = replaced != null ? Math.min(fromRow, replaced.fromRow) : fromRow;
+            back.toRow = replaced != null ? Math.max(toRow, replaced.toRow) : toRow;
+        } while (!ready.compareAndSet(replaced, back));
+        if (replaced == null) {
+            replaced = spare.getAndSet(null);
+        }
+        back = replaced != null ? replaced : new Snapshot();
+    }
+
+    // drawing thread: true if a newer board arrived since the last call, which cells() etc. now show
+    boolean take() {
+        Snapshot latest = ready.getAndSet(null);
+        if (latest == null) return false;
+        if (front != null) {
+            spare.set(front);
+        }
+        front = latest;
+        return true;
+    }
+
+    byte[] cells() {
+        return front.cells;
+    }
+
+    int width() {
+        return front.width;
+    }
+
+    int height() {
+        return front.height;
+    }
+
+    // the rows that changed since the board taken before this one
+    int fromRow() {
+        return front.fromRow;
+    }
+
+    int toRow() {
+        return front.toRow;
+    }
+}
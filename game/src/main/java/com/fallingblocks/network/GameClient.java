@@ -0,0 +1,891 @@
+package com.fallingblocks.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+import com.fallingblocks.engine.Playfield;
+
+public class GameClient {
+    private static final int SERVER_PORT = Protocol.DEFAULT_PORT;
+    // room requests: the server's open room, a new room for two, or else a room id
+    public static final int QUICK_MATCH = 0;
+    public static final int NEW_ROOM = -1;
+    private static final int NEW_ROOM_SIZE = 2;
+    // binary (default) or text, a fallback that still needs this server's HELLO/WELCOME handshake
+    public static final String PROTOCOL_PROPERTY = "fallingblocks.protocol";
+    // boards (default) sends this player's board; lockstep sends inputs for peers to replay instead
+    public static final String SYNC_PROPERTY = "fallingblocks.sync";
+    public static final String LOCKSTEP = "lockstep";
+    // board changes within this many milliseconds of the last board sent go out together
+    public static final String SEND_WINDOW_PROPERTY = "fallingblocks.sendWindow";
+    private static final long DEFAULT_SEND_WINDOW_MILLIS = 16;
+    // a full board goes out at least this often even when deltas would do
+    private static final int KEYFRAME_INTERVAL = 50;
+    // lockstep: every this many INPUTS frames are followed by a CHECK
+    private static final int CHECK_INTERVAL = 20;
+    // UDP: how often and how many times to register before giving up, and how often an unchanged
+    // board is sent again in case the last copy got lost
+    private static final long UDP_HELLO_INTERVAL_MILLIS = 200;
+    private static final int UDP_HELLO_ATTEMPTS = 10;
+    private static final long SNAPSHOT_REPEAT_MILLIS = 100;
+    private static final Input[] INPUTS = Input.values();
+
+    // receives an opponent board whose rows fromRow..toRow changed; cells is the client's copy of
+    // the whole board, row by row, and is only valid during the call
+    public interface BoardListener {
+        void onBoard(int playerId, byte[] cells, int width, int fromRow, int toRow);
+    }
+
+    // an opponent in lockstep mode, replayed on a local engine
+    private static final class RemoteGame {
+        final GameEngine engine = new GameEngine(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT, 0);
+        // locked cells with the falling block drawn in, as handed to the listener
+        final byte[] cells = new byte[GameEngine.DEFAULT_WIDTH * GameEngine.DEFAULT_HEIGHT];
+        int seq;
+        boolean synced;
+        // a SYNC has been asked for and not yet arrived, so gaps are not reported again
+        boolean awaitingSync;
+    }
+
+    // an opponent board as last received, updated in place by deltas
+    private static final class RemoteBoard {
+        final int width;
+        final int height;
+        final byte[] cells;
+        int seq;
+
+        RemoteBoard(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.cells = new byte[width * height];
+        }
+    }
+
+    private String serverIP;
+    private final int requestedRoom;
+    private Socket socket;
+    private OutputStream out;
+    private DataInputStream in;
+    private IntConsumer onPlayerJoined;
+    private IntConsumer onPlayerLeft;
+    private Runnable onStartGame;
+    private boolean connected;
+    private final boolean requestBinary;
+    private final boolean requestLockstep;
+    private volatile boolean binary;
+    // nothing is sent until the server has said which protocol it speaks
+    private volatile boolean welcomed;
+    private volatile int playerId;
+    private volatile int roomId;
+
+    // traffic counters for the performance overlay; each has a single writer thread
+    private volatile long messagesReceived;
+    private volatile long datagramsReceived;
+    private volatile long messagesSent;
+    private volatile long bytesWritten;
+    private volatile long boardsCoalesced;
+    private volatile long roundTripNanos = -1;
+
+    // reused encode and decode state, so steady state traffic allocates nothing in binary mode
+    private final ByteBuffer sendFrame = ByteBuffer.allocate(Protocol.MAX_FRAME + Protocol.LENGTH_BYTES);
+    private final ByteBuffer receiveFrame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+    private final StringBuilder sendLine = new StringBuilder();
+    private byte[] sendCells = new byte[0];
+    private byte[] receiveCells = new byte[0];
+
+    // the board changed since it was last sent, and when that was
+    private final long sendWindowNanos;
+    private boolean boardChanged;
+    private long boardSentAt;
+    // delta state: what was sent last, its sequence number, and when the last keyframe went out
+    private byte[] lastSentCells = new byte[0];
+    private int sendSeq;
+    private int sinceKeyframe;
+    private volatile boolean keyframeRequested = true;
+    private final int[] changedRows = new int[256];
+    // lockstep events applied since the last INPUTS frame
+    private final byte[] pendingEvents = new byte[Protocol.MAX_EVENTS];
+    private int pendingEventCount;
+    private int inputFrames;
+    // opponent boards and games, only touched by the reader threads; boards come in over TCP and,
+    // once registered, UDP, so the board paths lock remoteBoards
+    private final Map<Integer, RemoteBoard> remoteBoards = new HashMap<>();
+    private final Map<Integer, RemoteGame> remoteGames = new HashMap<>();
+    // the newest board of each opponent, filled by the reader thread and drained by pollBoards
+    private final Map<Integer, BoardMailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile long deltasSent;
+    private volatile long keyframesSent;
+    // board datagrams, once the server has offered them and answered a UDP_HELLO
+    private UdpLink udp;
+    private InetSocketAddress udpServer;
+    private volatile boolean udpReady;
+    private final ByteBuffer datagram = ByteBuffer.allocate(Protocol.MAX_DATAGRAM);
+    // the server runs this player's game: inputs go up and its state for this player comes back,
+    // from the reader thread to the one driving the engine, in a mailbox of serialized states
+    private volatile boolean authoritative;
+    private final BoardMailbox ownState = new BoardMailbox();
+    private byte[] receivedState = new byte[0];
+
+    public GameClient(String serverIP,
+                     int room,
+                     IntConsumer onPlayerJoined,
+                     IntConsumer onPlayerLeft,
+                     Runnable onStartGame) {
+        this.serverIP = serverIP;
+        this.requestedRoom = room;
+        this.onPlayerJoined = onPlayerJoined;
+        this.onPlayerLeft = onPlayerLeft;
+        this.onStartGame = onStartGame;
+        this.requestBinary = !Protocol.TEXT.equalsIgnoreCase(System.getProperty(PROTOCOL_PROPERTY, Protocol.BINARY));
+        this.requestLockstep = LOCKSTEP.equalsIgnoreCase(System.getProperty(SYNC_PROPERTY));
+        this.sendWindowNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong(SEND_WINDOW_PROPERTY, DEFAULT_SEND_WINDOW_MILLIS));
+    }
+
+    public boolean connect() {
+        try {
+            socket = new Socket(serverIP, SERVER_PORT);
+            // updates are small and batched here already, Nagle would only hold them back
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            String hello = Protocol.HELLO + ":" + (requestBinary ? Protocol.BINARY : Protocol.TEXT);
+            if (requestedRoom == NEW_ROOM) {
+                hello += ":" + Protocol.NEW_ROOM + ":" + NEW_ROOM_SIZE;
+            } else if (requestedRoom != QUICK_MATCH) {
+                hello += ":" + requestedRoom;
+            }
+            Protocol.writeLine(out, hello);
+            connected = true;
+
+            // Start listening for server messages
+            new Thread(this::listenForMessages).start();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error connecting to server: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void listenForMessages() {
+        try {
+            // text until the server's WELCOME switches the connection to binary frames
+            String message;
+            while (connected && !binary && (message = Protocol.readLine(in)) != null) {
+                handleMessage(message);
+            }
+            while (connected && binary && Protocol.receive(in, receiveFrame)) {
+                handleFrame(receiveFrame);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading from server: " + e.getMessage());
+        } finally {
+            disconnect();
+        }
+    }
+
+    private void handleFrame(ByteBuffer frame) throws IOException {
+        messagesReceived++;
+        byte type = frame.get();
+        switch (type) {
+            case Protocol.JOINED:
+                onPlayerJoined.accept(frame.getShort() & 0xFFFF);
+                break;
+            case Protocol.LEFT:
+                int left = frame.getShort() & 0xFFFF;
+                synchronized (remoteBoards) {
+                    remoteBoards.remove(left);
+                    mailboxes.remove(left);
+                }
+                remoteGames.remove(left);
+                onPlayerLeft.accept(left);
+                break;
+            case Protocol.START:
+                onStartGame.run();
+                break;
+            case Protocol.STATE:
+                synchronized (remoteBoards) {
+                    receiveKeyframe(frame, false);
+                }
+                break;
+            case Protocol.DELTA:
+                synchronized (remoteBoards) {
+                    receiveDelta(frame);
+                }
+                break;
+            case Protocol.KEYFRAME:
+                keyframeRequested = true;
+                break;
+            case Protocol.SYNC:
+                receiveSync(frame);
+                break;
+            case Protocol.INPUTS:
+                receiveInputs(frame);
+                break;
+            case Protocol.CHECK:
+                receiveCheck(frame);
+                break;
+            case Protocol.PONG:
+                roundTripNanos = System.nanoTime() - frame.getLong();
+                break;
+            default:
+                throw new IOException("Unknown frame type " + type);
+        }
+    }
+
+    // a full board; a datagram one (newestOnly) is dropped unless it is newer than the board we have
+    private void receiveKeyframe(ByteBuffer frame, boolean newestOnly) {
+        int sender = frame.getShort() & 0xFFFF;
+        int seq = frame.getShort() & 0xFFFF;
+        int width = frame.get() & 0xFF;
+        int height = frame.get() & 0xFF;
+        RemoteBoard board = remoteBoards.get(sender);
+        boolean sameSize = board != null && board.width == width && board.height == height;
+        if (frame.remaining() != Protocol.packedSize(width * height)
+                || newestOnly && sameSize && !Protocol.isNewer(seq, board.seq)) {
+            return;
+        }
+        if (!sameSize) {
+            board = new RemoteBoard(width, height);
+            remoteBoards.put(sender, board);
+        }
+        Protocol.unpackCells(frame, board.cells);
+        board.seq = seq;
+        post(sender, board.cells, width, height, 0, height - 1);
+    }
+
+    // applies the changed rows to the stored board, or asks for a keyframe if the base is missing
+    // or the rows do not fit it
+    private void receiveDelta(ByteBuffer frame) {
+        int sender = frame.getShort() & 0xFFFF;
+        int seq = frame.getShort() & 0xFFFF;
+        int width = frame.get() & 0xFF;
+        int height = frame.get() & 0xFF;
+        RemoteBoard board = remoteBoards.get(sender);
+        if (board == null || board.width != width || board.height != height || seq != Protocol.nextSeq(board.seq)
+                || !Protocol.isValidDelta(frame, width, height)) {
+            askForKeyframe(sender);
+            return;
+        }
+        int rows = frame.get() & 0xFF;
+        int fromRow = height;
+        int toRow = -1;
+        for (int i = 0; i < rows; i++) {
+            int row = frame.get() & 0xFF;
+            Protocol.unpackCells(frame, board.cells, row * width, width);
+            fromRow = Math.min(fromRow, row);
+            toRow = Math.max(toRow, row);
+        }
+        board.seq = seq;
+        if (rows > 0) {
+            post(sender, board.cells, width, height, fromRow, toRow);
+        }
+    }
+
+    private void receiveSync(ByteBuffer frame) {
+        int sender = frame.getShort() & 0xFFFF;
+        int seq = frame.getShort() & 0xFFFF;
+        if (authoritative && sender == playerId) {
+            receiveOwnState(frame);
+            return;
+        }
+        RemoteGame game = remoteGames.computeIfAbsent(sender, id -> new RemoteGame());
+        try {
+            game.engine.readState(frame);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring game state from player " + sender + ": " + e.getMessage());
+            remoteGames.remove(sender);
+            return;
+        }
+        game.seq = seq;
+        game.synced = true;
+        game.awaitingSync = false;
+        publish(sender, game);
+    }
+
+    // replays the sender's inputs and gravity ticks on our copy of their game
+    private void receiveInputs(ByteBuffer frame) {
+        int sender = frame.getShort() & 0xFFFF;
+        int seq = frame.getShort() & 0xFFFF;
+        RemoteGame game = remoteGames.get(sender);
+        if (game == null || !game.synced || seq != Protocol.nextSeq(game.seq)) {
+            loseSync(sender, game);
+            return;
+        }
+        int count = frame.get() & 0xFF;
+        for (int i = 0; i < count; i++) {
+            byte event = frame.get();
+            if (event == Protocol.TICK_EVENT) {
+                game.engine.tick();
+            } else if (event >= 0 && event < INPUTS.length) {
+                game.engine.step(INPUTS[event]);
+            }
+        }
+        game.seq = seq;
+        publish(sender, game);
+    }
+
+    private void receiveCheck(ByteBuffer frame) {
+        int sender = frame.getShort() & 0xFFFF;
+        int seq = frame.getShort() & 0xFFFF;
+        int hash = frame.getInt();
+        RemoteGame game = remoteGames.get(sender);
+        if (game != null && game.synced && game.seq == seq && game.engine.stateHash() != hash) {
+            System.err.println("Lost sync with player " + sender + ", asking for their state");
+            loseSync(sender, game);
+        }
+    }
+
+    private void loseSync(int sender, RemoteGame game) {
+        if (game != null) {
+            game.synced = false;
+            if (game.awaitingSync) return;
+            game.awaitingSync = true;
+        }
+        askForKeyframe(sender);
+    }
+
+    // posts the remote board with its falling block, as a board sender would show it
+    private void publish(int sender, RemoteGame game) {
+        game.engine.writeBoard(game.cells);
+        int width = game.engine.getPlayfield().getWidth();
+        int height = game.engine.getPlayfield().getHeight();
+        post(sender, game.cells, width, height, 0, height - 1);
+    }
+
+    // reader thread: replaces whatever board of the sender has not been drawn yet; rows
+    // fromRow..toRow changed
+    private void post(int sender, byte[] cells, int width, int height, int fromRow, int toRow) {
+        BoardMailbox mailbox = mailboxes.get(sender);
+        if (mailbox == null) {
+            mailbox = new BoardMailbox();
+            mailboxes.put(sender, mailbox);
+        }
+        mailbox.post(cells, width, height, fromRow, toRow);
+    }
+
+    // hands the listener each opponent board that changed since the last call, newest only; call
+    // once a frame on the thread that draws them
+    public void pollBoards(BoardListener listener) {
+        for (Map.Entry<Integer, BoardMailbox> entry : mailboxes.entrySet()) {
+            BoardMailbox mailbox = entry.getValue();
+            if (mailbox.take()) {
+                listener.onBoard(entry.getKey(), mailbox.cells(), mailbox.width(), mailbox.fromRow(), mailbox.toRow());
+            }
+        }
+    }
+
+    private synchronized void askForKeyframe(int sender) {
+        try {
+            Protocol.begin(sendFrame, Protocol.KEYFRAME);
+            sendFrame.putShort((short) sender);
+            writeFrame();
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
+    // takes up the server's offer of board datagrams: listens for them and registers with a
+    // UDP_HELLO, sent again until the server echoes it. Boards go over TCP until then, and for
+    // good if no answer ever comes back.
+    private void startUdp(int token) {
+        try {
+            udpServer = new InetSocketAddress(socket.getInetAddress(), SERVER_PORT);
+            udp = new UdpLink(new DatagramSocket());
+        } catch (IOException e) {
+            System.err.println("UDP unavailable, boards stay on TCP: " + e.getMessage());
+            return;
+        }
+        Thread listener = new Thread(this::listenForDatagrams, "udp-listener");
+        listener.setDaemon(true);
+        listener.start();
+        Thread registration = new Thread(() -> registerUdp(token), "udp-registration");
+        registration.setDaemon(true);
+        registration.start();
+    }
+
+    private void registerUdp(int token) {
+        byte[] hello = new byte[1 + Short.BYTES + Integer.BYTES];
+        ByteBuffer.wrap(hello).put(Protocol.UDP_HELLO).putShort((short) playerId).putInt(token);
+        try {
+            for (int attempt = 0; attempt < UDP_HELLO_ATTEMPTS && connected && !udpReady; attempt++) {
+                udp.send(hello, 0, hello.length, udpServer);
+                Thread.sleep(UDP_HELLO_INTERVAL_MILLIS);
+            }
+        } catch (IOException e) {
+            System.err.println("Error sending datagram: " + e.getMessage());
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (!udpReady && connected) {
+            System.err.println("No answer over UDP, boards stay on TCP");
+        }
+    }
+
+    private void listenForDatagrams() {
+        byte[] data = new byte[Protocol.MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        ByteBuffer received = ByteBuffer.wrap(data);
+        while (connected && !udp.isClosed()) {
+            try {
+                packet.setLength(data.length);
+                udp.receive(packet);
+                if (!packet.getSocketAddress().equals(udpServer)) continue;
+                received.clear();
+                received.limit(packet.getLength());
+                byte type = received.get();
+                if (type == Protocol.UDP_HELLO) {
+                    udpReady = true;
+                } else if (type == Protocol.STATE) {
+                    datagramsReceived++;
+                    synchronized (remoteBoards) {
+                        receiveKeyframe(received, true);
+                    }
+                }
+            } catch (IOException e) {
+                if (!udp.isClosed()) {
+                    System.err.println("Error receiving datagram: " + e.getMessage());
+                }
+            } catch (BufferUnderflowException e) {
+                // a truncated datagram is as good as a lost one
+            }
+        }
+    }
+
+    private void handleMessage(String message) {
+        messagesReceived++;
+        if (message.equals("START")) {
+            if (onStartGame != null) {
+                onStartGame.run();
+            }
+            return;
+        }
+        String[] parts = message.split(":", 3);
+        if (parts.length < 2) {
+            System.err.println("Malformed message from server: " + message);
+            return;
+        }
+        String type = parts[0];
+
+        try {
+            switch (type) {
+                case Protocol.WELCOME:
+                    // WELCOME:<mode>:<player id>:<room id>:<capacity>; binary frames follow right after this line
+                    // then optionally :UDP:<token>, offering board datagrams, and :AUTHORITATIVE
+                    String[] fields = message.split(":");
+                    if (fields.length > 3) {
+                        playerId = Integer.parseInt(fields[2]);
+                        roomId = Integer.parseInt(fields[3]);
+                        System.out.println("Joined room " + roomId + " as player " + playerId);
+                    }
+                    binary = parts[1].equals(Protocol.BINARY);
+                    boolean udpOffered = false;
+                    int udpToken = 0;
+                    for (int i = 5; i < fields.length; i++) {
+                        if (fields[i].equals(Protocol.UDP) && i + 1 < fields.length) {
+                            udpOffered = true;
+                            udpToken = Integer.parseInt(fields[++i]);
+                        } else if (fields[i].equals(Protocol.AUTHORITATIVE)) {
+                            authoritative = binary;
+                        }
+                    }
+                    welcomed = true;
+                    // lockstep players send no boards, so datagrams are no use to them
+                    if (udpOffered && binary && !isLockstep()) {
+                        startUdp(udpToken);
+                    }
+                    break;
+                case Protocol.REFUSED:
+                    System.err.println("Server refused to let us in: " + message.substring(Protocol.REFUSED.length() + 1));
+                    disconnect();
+                    break;
+                case "PONG":
+                    // echoes the send time of our PING
+                    roundTripNanos = System.nanoTime() - Long.parseLong(parts[1]);
+                    break;
+                case "PLAYER_JOINED":
+                    onPlayerJoined.accept(Integer.parseInt(parts[1]));
+                    break;
+                case "PLAYER_LEFT":
+                    int left = Integer.parseInt(parts[1]);
+                    mailboxes.remove(left);
+                    onPlayerLeft.accept(left);
+                    break;
+                case "GAME_STATE":
+                    if (parts.length > 2) {
+                        int cellCount = Protocol.countCells(parts[2]);
+                        if (receiveCells.length != cellCount) {
+                            receiveCells = new byte[cellCount];
+                        }
+                        // text boards carry no width, they are always the default size
+                        if (cellCount % GameEngine.DEFAULT_WIDTH == 0 && Protocol.parseCells(parts[2], 0, receiveCells)) {
+                            int rows = cellCount / GameEngine.DEFAULT_WIDTH;
+                            post(Integer.parseInt(parts[1]), receiveCells, GameEngine.DEFAULT_WIDTH, rows, 0, rows - 1);
+                        } else {
+                            System.err.println("Malformed board from server: " + message);
+                        }
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown message type: " + type);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Malformed message from server: " + message);
+        }
+    }
+
+    // the local board changed; it goes out with the next flushGameState
+    public synchronized void markBoardChanged() {
+        if (boardChanged) {
+            boardsCoalesced++;
+        }
+        boardChanged = true;
+    }
+
+    // sends the board if it changed, or the server asked for it, and the send window since the last
+    // one has passed; call once a frame on the thread driving the engine
+    public synchronized void flushGameState(GameEngine engine, long now) {
+        if (!connected || !welcomed || isLockstep() || authoritative) return;
+        boolean repeat = udpReady && now - boardSentAt >= TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_REPEAT_MILLIS);
+        if (!boardChanged && !keyframeRequested && !repeat) return;
+        if (now - boardSentAt < sendWindowNanos) return;
+        boardChanged = false;
+        boardSentAt = now;
+        sendGameState(engine);
+    }
+
+    // sends the board, falling block included, in whichever protocol the server agreed to: in
+    // binary, the rows changed since the last message, or the whole board when due, asked for, or
+    // not much bigger
+    private void sendGameState(GameEngine engine) {
+        Playfield playfield = engine.getPlayfield();
+        int width = playfield.getWidth();
+        int height = playfield.getHeight();
+        if (sendCells.length != width * height) {
+            sendCells = new byte[width * height];
+            lastSentCells = new byte[width * height];
+            keyframeRequested = true;
+        }
+        engine.writeBoard(sendCells);
+        try {
+            if (udpReady) {
+                sendSnapshot(width, height);
+            } else if (binary) {
+                sendBinaryState(width, height);
+            } else {
+                sendLine.setLength(0);
+                Protocol.appendCells(sendLine, sendCells);
+                writeLine(sendLine);
+                keyframeRequested = false;
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
+    private void sendBinaryState(int width, int height) throws IOException {
+        int rowBytes = 1 + Protocol.packedSize(width);
+        int rows = 0;
+        for (int y = 0; y < height; y++) {
+            if (!Arrays.equals(sendCells, y * width, (y + 1) * width, lastSentCells, y * width, (y + 1) * width)) {
+                changedRows[rows++] = y;
+            }
+        }
+        boolean keyframe = keyframeRequested || sinceKeyframe >= KEYFRAME_INTERVAL
+            || rows * rowBytes >= Protocol.packedSize(width * height);
+        if (!keyframe && rows == 0) {
+            return;
+        }
+
+        sendSeq = Protocol.nextSeq(sendSeq);
+        if (keyframe) {
+            Protocol.begin(sendFrame, Protocol.STATE);
+            sendFrame.putShort((short) 0);
+            sendFrame.putShort((short) sendSeq);
+            sendFrame.put((byte) width);
+            sendFrame.put((byte) height);
+            Protocol.packCells(sendCells, sendFrame);
+            keyframeRequested = false;
+            sinceKeyframe = 0;
+            keyframesSent++;
+        } else {
+            Protocol.begin(sendFrame, Protocol.DELTA);
+            sendFrame.putShort((short) 0);
+            sendFrame.putShort((short) sendSeq);
+            sendFrame.put((byte) width);
+            sendFrame.put((byte) height);
+            sendFrame.put((byte) rows);
+            for (int i = 0; i < rows; i++) {
+                sendFrame.put((byte) changedRows[i]);
+                Protocol.packCells(sendCells, changedRows[i] * width, width, sendFrame);
+            }
+            sinceKeyframe++;
+            deltasSent++;
+        }
+        writeFrame();
+
+        // the next delta is taken against what was just sent
+        byte[] sent = sendCells;
+        sendCells = lastSentCells;
+        lastSentCells = sent;
+    }
+
+    // the whole board as a datagram; an unchanged board goes out again under the same sequence
+    // number, which a receiver that lost it takes and one that has it ignores
+    private void sendSnapshot(int width, int height) throws IOException {
+        if (keyframeRequested || !Arrays.equals(sendCells, lastSentCells)) {
+            sendSeq = Protocol.nextSeq(sendSeq);
+            keyframeRequested = false;
+            byte[] sent = sendCells;
+            sendCells = lastSentCells;
+            lastSentCells = sent;
+        }
+        datagram.clear();
+        datagram.put(Protocol.STATE);
+        datagram.putShort((short) playerId);
+        datagram.putShort((short) sendSeq);
+        datagram.put((byte) width);
+        datagram.put((byte) height);
+        Protocol.packCells(lastSentCells, datagram);
+        udp.send(datagram.array(), 0, datagram.position(), udpServer);
+        messagesSent++;
+        bytesWritten += datagram.position();
+    }
+
+    // the server's state for this player; a later one replaces it if the frame is drawn too late
+    private void receiveOwnState(ByteBuffer frame) {
+        if (receivedState.length != frame.remaining()) {
+            receivedState = new byte[frame.remaining()];
+        }
+        frame.get(receivedState);
+        // a serialized state carries its own size
+        ownState.post(receivedState, 0, 0, 0, 0);
+    }
+
+    // authoritative mode: adopts the newest state the server sent for this player; call once a
+    // frame on the thread driving the engine, true if the engine changed
+    public boolean pollOwnState(GameEngine engine) {
+        if (!ownState.take()) return false;
+        try {
+            engine.readState(ByteBuffer.wrap(ownState.cells()));
+            return true;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            System.err.println("Ignoring game state from server: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // lockstep: queues an input the local engine applied, or Protocol.TICK_EVENT for gravity;
+    // inputs that changed nothing need not be sent. Authoritative mode: queues every input for
+    // the server to apply, as the local engine only shows the server's state.
+    public synchronized void recordEvent(byte event) {
+        if (!isLockstep() && !authoritative) return;
+        pendingEvents[pendingEventCount++] = event;
+        if (pendingEventCount == pendingEvents.length) {
+            try {
+                sendInputs();
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Error sending to server: " + e.getMessage());
+            }
+        }
+    }
+
+    // lockstep: sends the queued events, preceded by a SYNC of the engine when one is due, and now
+    // and then a CHECK of the state they lead to; authoritative mode: sends the queued inputs.
+    // Call once a frame on the thread driving the engine.
+    public synchronized void flushInputs(GameEngine engine) {
+        if (!(isLockstep() || authoritative) || !connected) return;
+        try {
+            if (authoritative) {
+                if (pendingEventCount > 0) {
+                    sendInputs();
+                    out.flush();
+                }
+                return;
+            }
+            if (keyframeRequested) {
+                // the state already includes anything still queued
+                pendingEventCount = 0;
+                keyframeRequested = false;
+                sendSeq = Protocol.nextSeq(sendSeq);
+                Protocol.begin(sendFrame, Protocol.SYNC);
+                sendFrame.putShort((short) 0);
+                sendFrame.putShort((short) sendSeq);
+                engine.writeState(sendFrame);
+                writeFrame();
+                out.flush();
+                keyframesSent++;
+                return;
+            }
+            if (pendingEventCount == 0) return;
+            sendInputs();
+            if (++inputFrames % CHECK_INTERVAL == 0) {
+                Protocol.begin(sendFrame, Protocol.CHECK);
+                sendFrame.putShort((short) 0);
+                sendFrame.putShort((short) sendSeq);
+                sendFrame.putInt(engine.stateHash());
+                writeFrame();
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
+    private void sendInputs() throws IOException {
+        sendSeq = Protocol.nextSeq(sendSeq);
+        Protocol.begin(sendFrame, Protocol.INPUTS);
+        sendFrame.putShort((short) 0);
+        sendFrame.putShort((short) sendSeq);
+        sendFrame.put((byte) pendingEventCount);
+        sendFrame.put(pendingEvents, 0, pendingEventCount);
+        writeFrame();
+        pendingEventCount = 0;
+    }
+
+    // writes the frame in sendFrame into the stream's buffer; callers flush once per batch
+    private void writeFrame() throws IOException {
+        Protocol.finish(sendFrame);
+        out.write(sendFrame.array(), sendFrame.arrayOffset(), sendFrame.position());
+        messagesSent++;
+        bytesWritten += sendFrame.position();
+    }
+
+    // the text protocol's writeFrame, encoding through the same buffer
+    private void writeLine(CharSequence line) throws IOException {
+        Protocol.encodeLine(line, sendFrame);
+        out.write(sendFrame.array(), sendFrame.arrayOffset(), sendFrame.position());
+        messagesSent++;
+        bytesWritten += sendFrame.position();
+    }
+
+    // the local game was restarted; the next update goes out in full
+    public void resynchronize() {
+        keyframeRequested = true;
+    }
+
+    // asks the server to echo a timestamp; the answer updates getRoundTripNanos()
+    public synchronized void sendPing() {
+        if (!connected || !welcomed) return;
+        try {
+            if (binary) {
+                Protocol.begin(sendFrame, Protocol.PING);
+                sendFrame.putLong(System.nanoTime());
+                writeFrame();
+            } else {
+                sendLine.setLength(0);
+                sendLine.append("PING:").append(System.nanoTime());
+                writeLine(sendLine);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived + datagramsReceived;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // board changes that went out together with a later one instead of in a message of their own
+    public long getBoardsCoalesced() {
+        return boardsCoalesced;
+    }
+
+    public long getDeltasSent() {
+        return deltasSent;
+    }
+
+    public long getKeyframesSent() {
+        return keyframesSent;
+    }
+
+    // last measured round trip, -1 before the first PONG
+    public long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+
+    // id the server gave this player, 0 until it has answered
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    // room the server put this player in, 0 until it has answered
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    // boards travel as datagrams
+    public boolean isUsingUdp() {
+        return udpReady;
+    }
+
+    // datagrams sent, and ones the simulated loss threw away; 0 until boards travel as datagrams
+    public long getDatagramsSent() {
+        return udpReady ? udp.getDatagramsSent() : 0;
+    }
+
+    public long getDatagramsDropped() {
+        return udpReady ? udp.getDatagramsDropped() : 0;
+    }
+
+    // lockstep needs the binary protocol; against a text server this falls back to boards, and on
+    // an authoritative server the server's game is what counts
+    public boolean isLockstep() {
+        return requestLockstep && binary && welcomed && !authoritative;
+    }
+
+    // the server runs this player's game; see pollOwnState
+    public boolean isAuthoritative() {
+        return authoritative;
+    }
+
+    public void disconnect() {
+        connected = false;
+        if (udp != null) {
+            udp.close();
+        }
+        try {
+            if (out != null) out.close();
+            if (in != null) in.close();
+            if (socket != null) socket.close();
+        } catch (IOException e) {
+            System.err.println("Error during disconnect: " + e.getMessage());
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+}
@@ -0,0 +1,935 @@
+package com.fallingblocks.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fallingblocks.engine.GameEngine;
+
+// Relays boards between players. Every connection gets a virtual thread doing blocking reads, so
+// idle players cost a parked thread and a few small buffers rather than a platform thread each.
+// Nothing is written to a socket from another player's thread: a message is encoded once into a
+// SharedFrame and put on each recipient's OutboundQueue, which a second virtual thread per client
+// drains. A player on a bad connection only delays their own queue, where newer boards replace
+// older ones, and is disconnected if it still cannot keep up. Locks that readers and writers wait
+// on are ReentrantLocks, because a virtual thread blocking while it holds a monitor pins its
+// carrier thread. Room keeps to synchronized: its monitor only guards a few membership fields and
+// nothing under it blocks.
+//
+// Players play in rooms. A room starts its match once it is full and everything a player sends
+// only goes to the rest of their room, so the cost of a message does not grow with the number of
+// players on the server. HELLO picks the room: HELLO:<mode>:<room id> joins one,
+// HELLO:<mode>:NEW:<capacity> creates one, and a bare HELLO:<mode> joins the open room that is
+// waiting for players, creating it when there is none.
+//
+// Started with -Dfallingblocks.transport=udp, the server also listens for datagrams on its port
+// and offers binary clients to exchange boards that way (see Protocol): a lost board is then
+// replaced by the next one instead of holding up everything behind it on the TCP stream.
+//
+// Started with -Dfallingblocks.authority=server, the server runs every player's game itself and
+// only takes inputs from clients (see Protocol), so nobody can send a board they did not play.
+// Each started room is one task on a fixed pool of worker threads: every STEP_MILLIS it applies
+// the inputs its players sent and any gravity due, then sends out the games that changed.
+public class GameServer {
+    private static final int PORT = Protocol.DEFAULT_PORT;
+    // tcp (default) or udp, which adds board datagrams for the clients that take them up
+    public static final String TRANSPORT_PROPERTY = "fallingblocks.transport";
+    private static final String UDP_TRANSPORT = "udp";
+    // clients (default) or server, which runs the games instead of trusting clients' boards
+    public static final String AUTHORITY_PROPERTY = "fallingblocks.authority";
+    private static final String SERVER_AUTHORITY = "server";
+    // authoritative rooms apply inputs this often; gravity is as slow as GameBoard's
+    private static final long STEP_MILLIS = 16;
+    private static final long GRAVITY_MILLIS = 1000;
+    // pending connections the OS queues while the accept loop catches up
+    private static final int BACKLOG = 1024;
+    // per-connection buffers start this small and grow if a bigger message comes along
+    private static final int INITIAL_BUFFER = 512;
+    private static final int INPUT_BUFFER = 1024;
+    // messages a client may have waiting; past LAG_THRESHOLD it only gets whole boards, and a full
+    // queue or MAX_DELAY_MILLIS without the writer getting anything out disconnects it
+    private static final int OUTBOUND_CAPACITY = 256;
+    private static final int LAG_THRESHOLD = 16;
+    private static final long MAX_DELAY_MILLIS = 3000;
+    // text clients send bare cell lists, so their boards are taken to be this wide
+    private static final int TEXT_BOARD_WIDTH = 10;
+    private static final int DEFAULT_ROOM_SIZE = 2;
+    private static final int MAX_ROOM_SIZE = 16;
+    private ServerSocket serverSocket;
+    private Map<Integer, ClientHandler> clients;
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    // the room quick matches fill, guarded by the rooms map's monitor
+    private Room openRoom;
+    // player and room ids fit the protocol's u16, 0 is never handed out
+    private final AtomicInteger playerIds = new AtomicInteger();
+    private final AtomicInteger roomIds = new AtomicInteger();
+    private ExecutorService pool;
+    private boolean running;
+    // board datagrams, null unless the UDP transport is on
+    private UdpLink udp;
+    private final boolean authoritative;
+    // steps the authoritative rooms, null otherwise
+    private ScheduledExecutorService simulations;
+
+    public GameServer() {
+        clients = new ConcurrentHashMap<>();
+        pool = Executors.newVirtualThreadPerTaskExecutor();
+        authoritative = SERVER_AUTHORITY.equalsIgnoreCase(System.getProperty(AUTHORITY_PROPERTY));
+        if (authoritative) {
+            // simulation is CPU work, so one platform thread per core rather than a thread per room
+            simulations = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "simulation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // skips ids still in use once the counter has wrapped
+    private int nextPlayerId() {
+        int id;
+        do {
+            id = playerIds.updateAndGet(last -> last % 0xFFFF + 1);
+        } while (clients.containsKey(id));
+        return id;
+    }
+
+    private int nextRoomId() {
+        int id;
+        do {
+            id = roomIds.updateAndGet(last -> last % 0xFFFF + 1);
+        } while (rooms.containsKey(id));
+        return id;
+    }
+
+    // how a player got into a room
+    private enum Join {
+        REFUSED, WAITING, FILLED, LATE
+    }
+
+    // puts a player in the room they asked for, or in none if it does not exist or is full
+    private Join joinRoom(ClientHandler client, String request) {
+        if (request == null) {
+            synchronized (rooms) {
+                Join join = openRoom == null ? Join.REFUSED : openRoom.addWaiting(client);
+                if (join == Join.REFUSED) {
+                    openRoom = createRoom(DEFAULT_ROOM_SIZE);
+                    join = openRoom.addWaiting(client);
+                }
+                return join;
+            }
+        }
+        try {
+            if (request.startsWith(Protocol.NEW_ROOM + ":")) {
+                int capacity = Integer.parseInt(request.substring(Protocol.NEW_ROOM.length() + 1));
+                if (capacity < 1 || capacity > MAX_ROOM_SIZE) {
+                    return Join.REFUSED;
+                }
+                return createRoom(capacity).add(client);
+            }
+            Room room = rooms.get(Integer.parseInt(request));
+            return room == null ? Join.REFUSED : room.add(client);
+        } catch (NumberFormatException e) {
+            return Join.REFUSED;
+        }
+    }
+
+    private Room createRoom(int capacity) {
+        Room room = new Room(nextRoomId(), capacity);
+        rooms.put(room.id, room);
+        return room;
+    }
+
+    // A match: its players and whether it has started. Membership changes take the room's
+    // monitor, which is never held while writing to a socket; broadcasts iterate members freely.
+    private final class Room {
+        final int id;
+        final int capacity;
+        final Map<Integer, ClientHandler> members = new ConcurrentHashMap<>();
+        private boolean started;
+        private boolean closed;
+        // authoritative mode: every game in the room deals the same pieces
+        private final long seed = ThreadLocalRandom.current().nextLong();
+        private ScheduledFuture<?> steps;
+
+        Room(int id, int capacity) {
+            this.id = id;
+            this.capacity = capacity;
+        }
+
+        // joins while there is space; the player filling the room starts the match
+        synchronized Join add(ClientHandler client) {
+            if (closed || members.size() >= capacity) {
+                return Join.REFUSED;
+            }
+            members.put(client.playerId, client);
+            client.room = this;
+            if (started) {
+                return Join.LATE;
+            }
+            if (members.size() == capacity) {
+                started = true;
+                return Join.FILLED;
+            }
+            return Join.WAITING;
+        }
+
+        // joins only a room whose match has not started yet
+        synchronized Join addWaiting(ClientHandler client) {
+            return started ? Join.REFUSED : add(client);
+        }
+
+        // leaves, closing and unlisting the room once nobody is left
+        void remove(ClientHandler client) {
+            synchronized (this) {
+                members.remove(client.playerId);
+                if (!members.isEmpty()) return;
+                closed = true;
+                if (steps != null) {
+                    steps.cancel(false);
+                }
+            }
+            rooms.remove(id, this);
+        }
+
+        // authoritative mode: gives a binary player a game of their own, and starts stepping the
+        // room with its first one; text players only watch
+        synchronized void simulate(ClientHandler client) {
+            if (closed || !client.binary || client.simulation != null) return;
+            client.simulation = new Simulation(GameEngine.DEFAULT_WIDTH, GameEngine.DEFAULT_HEIGHT, seed,
+                TimeUnit.MILLISECONDS.toNanos(GRAVITY_MILLIS), System.nanoTime());
+            if (steps == null) {
+                steps = simulations.scheduleAtFixedRate(this::step, 0, STEP_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // one batch for the whole room: every game advances, and each one that changed goes out
+        private void step() {
+            long now = System.nanoTime();
+            try {
+                for (ClientHandler member : members.values()) {
+                    Simulation simulation = member.simulation;
+                    if (simulation != null && simulation.step(now)) {
+                        member.publishSimulation();
+                    }
+                }
+            } catch (RuntimeException e) {
+                // an exception would cancel the room's schedule for good
+                System.err.println("Error simulating room " + id + ": " + e);
+            }
+        }
+    }
+
+    public void start() {
+        try {
+            serverSocket = new ServerSocket(PORT, BACKLOG);
+            running = true;
+            if (UDP_TRANSPORT.equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY))) {
+                udp = new UdpLink(new DatagramSocket(PORT));
+                pool.execute(this::receiveDatagrams);
+                System.out.println("Server started on port " + PORT + " (TCP and UDP)");
+            } else {
+                System.out.println("Server started on port " + PORT);
+            }
+
+            while (running) {
+                Socket clientSocket = serverSocket.accept();
+                ClientHandler clientHandler = new ClientHandler(clientSocket);
+                pool.execute(clientHandler);
+            }
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+        }
+    }
+
+    // registrations and boards from every UDP client, one datagram at a time on a virtual thread
+    private void receiveDatagrams() {
+        byte[] data = new byte[Protocol.MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        ByteBuffer datagram = ByteBuffer.wrap(data);
+        while (!udp.isClosed()) {
+            try {
+                packet.setLength(data.length);
+                udp.receive(packet);
+                datagram.clear();
+                datagram.limit(packet.getLength());
+                handleDatagram(datagram, packet.getSocketAddress());
+            } catch (IOException e) {
+                if (!udp.isClosed()) {
+                    System.err.println("Error receiving datagram: " + e.getMessage());
+                }
+            } catch (BufferUnderflowException e) {
+                // a truncated datagram is as good as a lost one
+            }
+        }
+    }
+
+    private void handleDatagram(ByteBuffer datagram, SocketAddress from) throws IOException {
+        byte type = datagram.get();
+        ClientHandler client = clients.get(datagram.getShort() & 0xFFFF);
+        if (client == null) return;
+        if (type == Protocol.UDP_HELLO) {
+            if (datagram.getInt() != client.udpToken) return;
+            client.udpAddress = from;
+            // echoed back as the ack; if it gets lost the client asks again
+            udp.send(datagram.array(), 0, datagram.limit(), from);
+        } else if (type == Protocol.STATE && !authoritative && from.equals(client.udpAddress)) {
+            client.receiveSnapshot(datagram);
+        }
+    }
+
+    // writes one message, e.g. a single recipient's or a whole room's copy
+    private interface Encoder {
+        SharedFrame encode(boolean binary);
+    }
+
+    // a virtual thread reading from the connection, reading either binary frames or text lines as
+    // negotiated, and another writing the client's outbound queue
+    private class ClientHandler implements Runnable {
+        private final Socket clientSocket;
+        private final int playerId;
+        private OutputStream out;
+        private DataInputStream in;
+        private volatile boolean binary;
+        private final OutboundQueue outbound = new OutboundQueue(OUTBOUND_CAPACITY, MAX_DELAY_MILLIS);
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        // text this player's thread is encoding
+        private final StringBuilder textLine = new StringBuilder();
+        private ByteBuffer receiveFrame = ByteBuffer.allocate(INITIAL_BUFFER);
+        // this player's board as the server last saw it, so late joiners and receivers that lost
+        // track can be sent a keyframe; read by other handlers under boardLock
+        private final ReentrantLock boardLock = new ReentrantLock();
+        private byte[] cells = new byte[0];
+        private int width;
+        private int height;
+        private int seq;
+        private boolean hasBoard;
+        // a lockstep player has no board here and is asked for a SYNC instead
+        private volatile boolean lockstep;
+        private final int[] changedRows = new int[256];
+        // set once when joining, before anyone else in the room can see this player
+        private volatile Room room;
+        // proves a UDP_HELLO comes from this client; the address it came from then gets its boards
+        private final int udpToken = ThreadLocalRandom.current().nextInt();
+        private volatile SocketAddress udpAddress;
+        // authoritative mode: this player's game, once their match has started; the board it
+        // shows is kept in cells like a received one
+        private volatile Simulation simulation;
+        private byte[] simulatedCells = new byte[0];
+        // text boards of this player, built under boardLock by whichever thread sends them
+        private final StringBuilder boardText = new StringBuilder();
+
+        public ClientHandler(Socket socket) {
+            this.clientSocket = socket;
+            this.playerId = nextPlayerId();
+        }
+
+        @Override
+        public void run() {
+            try {
+                out = clientSocket.getOutputStream();
+                // the writer batches what is queued, Nagle would only delay it further
+                clientSocket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream(), INPUT_BUFFER));
+
+                // HELLO:<mode>[:<room>] picks the protocol and room; a client that skips it is
+                // spoken to in text and quick matched
+                String first = Protocol.readLine(in);
+                if (first == null) return;
+                String pending = null;
+                String roomRequest = null;
+                if (first.startsWith(Protocol.HELLO + ":")) {
+                    String[] parts = first.split(":", 3);
+                    binary = parts[1].equals(Protocol.BINARY);
+                    roomRequest = parts.length > 2 ? parts[2] : null;
+                } else {
+                    pending = first;
+                }
+
+                clients.put(playerId, this);
+                Join join = joinRoom(this, roomRequest);
+                if (join == Join.REFUSED) {
+                    textLine.setLength(0);
+                    textLine.append(Protocol.REFUSED).append(":Cannot join room ").append(roomRequest);
+                    SharedFrame refusal = encodeText(textLine);
+                    refusal.writeTo(out);
+                    refusal.release();
+                    return;
+                }
+                // the room may already be queueing messages for us; the welcome goes ahead of them
+                textLine.setLength(0);
+                textLine.append(Protocol.WELCOME).append(':').append(binary ? Protocol.BINARY : Protocol.TEXT)
+                    .append(':').append(playerId).append(':').append(room.id).append(':').append(room.capacity);
+                if (udp != null && binary) {
+                    textLine.append(':').append(Protocol.UDP).append(':').append(udpToken);
+                }
+                if (authoritative && binary) {
+                    textLine.append(':').append(Protocol.AUTHORITATIVE);
+                }
+                SharedFrame welcome = encodeText(textLine);
+                outbound.offerFirst(welcome);
+                welcome.release();
+                pool.execute(this::writeOutbound);
+
+                System.out.println("Client connected: " + playerId + (binary ? " (binary)" : " (text)") + " in room " + room.id
+                    + ". Total clients: " + clients.size() + " in " + rooms.size() + " rooms");
+                broadcast(forBinary -> encodePlayer(Protocol.JOINED, "PLAYER_JOINED:", forBinary), true);
+                sendExistingBoards();
+
+                // the player who fills the room starts its match; one joining a running match starts alone
+                if (join == Join.FILLED) {
+                    broadcast(this::encodeStart, true);
+                    if (authoritative) {
+                        for (ClientHandler member : room.members.values()) {
+                            room.simulate(member);
+                        }
+                    }
+                } else if (join == Join.LATE) {
+                    sendTo(this, encodeStart(binary));
+                    if (authoritative) {
+                        room.simulate(this);
+                    }
+                }
+
+                if (binary) {
+                    while ((receiveFrame = Protocol.receiveResizing(in, receiveFrame)) != null) {
+                        handleFrame(receiveFrame);
+                    }
+                } else {
+                    if (pending != null) {
+                        handleLine(pending);
+                    }
+                    String inputLine;
+                    while ((inputLine = Protocol.readLine(in)) != null) {
+                        handleLine(inputLine);
+                    }
+                }
+            } catch (IOException e) {
+                if (!dropped.get()) {
+                    System.err.println("Error handling client: " + e.getMessage());
+                }
+            } finally {
+                cleanup();
+            }
+        }
+
+        // the writer thread: sends whatever is queued for this client until the connection closes,
+        // flushing once the queue has been drained rather than once per message
+        private void writeOutbound() {
+            try {
+                OutputStream batch = new BufferedOutputStream(out, INITIAL_BUFFER);
+                SharedFrame frame;
+                while ((frame = outbound.take()) != null) {
+                    try {
+                        frame.writeTo(batch);
+                    } finally {
+                        frame.release();
+                    }
+                    if (outbound.size() == 0) {
+                        batch.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                drop(null);
+            }
+        }
+
+        // queues a message for this client; one that cannot keep up is disconnected
+        private void send(SharedFrame frame) {
+            if (!outbound.offer(frame)) {
+                drop("not keeping up");
+            }
+        }
+
+        // closing the socket ends the reader, whose cleanup tells the room
+        private void drop(String reason) {
+            if (!dropped.compareAndSet(false, true)) return;
+            if (reason != null) {
+                System.out.println("Disconnecting client " + playerId + ": " + reason);
+            }
+            outbound.close();
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                System.err.println("Error during cleanup: " + e.getMessage());
+            }
+        }
+
+        private boolean isLagging() {
+            return outbound.size() >= LAG_THRESHOLD;
+        }
+
+        private void handleFrame(ByteBuffer frame) throws IOException {
+            byte type = frame.get();
+            if (authoritative && type != Protocol.INPUTS && type != Protocol.KEYFRAME && type != Protocol.PING) {
+                // boards and game states are the server's to say
+                return;
+            }
+            switch (type) {
+                case Protocol.STATE:
+                    receiveKeyframe(frame);
+                    break;
+                case Protocol.DELTA:
+                    receiveDelta(frame);
+                    break;
+                case Protocol.KEYFRAME:
+                    ClientHandler owner = room.members.get(frame.getShort() & 0xFFFF);
+                    if (owner != null) {
+                        sendBoardOf(owner);
+                    }
+                    break;
+                case Protocol.INPUTS:
+                    if (authoritative) {
+                        simulateInputs(frame);
+                    } else {
+                        relay(type, frame);
+                    }
+                    break;
+                case Protocol.CHECK:
+                case Protocol.SYNC:
+                    relay(type, frame);
+                    break;
+                case Protocol.PING:
+                    sendTo(this, encodePong(frame.getLong(), true));
+                    break;
+                default:
+                    throw new IOException("Unknown frame type " + type);
+            }
+        }
+
+        private void receiveKeyframe(ByteBuffer frame) {
+            frame.getShort(); // the server knows who sent it
+            int frameSeq = frame.getShort() & 0xFFFF;
+            int frameWidth = frame.get() & 0xFF;
+            int frameHeight = frame.get() & 0xFF;
+            if (frame.remaining() != Protocol.packedSize(frameWidth * frameHeight)) return;
+            boardLock.lock();
+            try {
+                if (cells.length != frameWidth * frameHeight) {
+                    hasBoard = false;
+                    cells = new byte[frameWidth * frameHeight];
+                }
+                Protocol.unpackCells(frame, cells);
+                width = frameWidth;
+                height = frameHeight;
+                seq = frameSeq;
+                hasBoard = true;
+                broadcastBoard(0, false);
+            } finally {
+                boardLock.unlock();
+            }
+        }
+
+        // applies the rows to this player's board and passes them on; a delta that does not follow
+        // the board the server has, or does not fit it, is dropped and the sender asked for a keyframe
+        private void receiveDelta(ByteBuffer frame) {
+            frame.getShort();
+            int frameSeq = frame.getShort() & 0xFFFF;
+            int frameWidth = frame.get() & 0xFF;
+            int frameHeight = frame.get() & 0xFF;
+            boardLock.lock();
+            try {
+                if (!hasBoard || frameWidth != width || frameHeight != height || frameSeq != Protocol.nextSeq(seq)
+                        || !Protocol.isValidDelta(frame, width, height)) {
+                    sendTo(this, encodeKeyframeRequest());
+                    return;
+                }
+                int rows = frame.get() & 0xFF;
+                for (int i = 0; i < rows; i++) {
+                    int row = frame.get() & 0xFF;
+                    Protocol.unpackCells(frame, cells, row * width, width);
+                    changedRows[i] = row;
+                }
+                seq = frameSeq;
+                broadcastBoard(rows, false);
+            } finally {
+                boardLock.unlock();
+            }
+        }
+
+        // sends this player's board to the room, encoded at most once per kind: the changed rows to
+        // binary clients that keep up, the whole board to the rest (UDP clients, text clients and
+        // laggards, whose queued boards of this player it replaces). A repeat only goes to UDP
+        // clients, the others cannot have lost it. Called with boardLock held, so copies leave in
+        // the order the board changed.
+        private void broadcastBoard(int changedRowCount, boolean repeat) {
+            SharedFrame delta = null;
+            SharedFrame full = null;
+            SharedFrame text = null;
+            for (ClientHandler client : room.members.values()) {
+                if (client == this) continue;
+                SocketAddress address = client.udpAddress;
+                if (address != null) {
+                    if (full == null) full = encodeBoard(this, true);
+                    sendDatagram(full, address);
+                } else if (repeat) {
+                    continue;
+                } else if (!client.binary) {
+                    if (text == null) text = encodeBoard(this, false);
+                    client.send(text);
+                } else if (changedRowCount > 0 && !client.isLagging()) {
+                    if (delta == null) delta = encodeDelta(changedRowCount);
+                    client.send(delta);
+                } else {
+                    if (full == null) full = encodeBoard(this, true);
+                    client.send(full);
+                }
+            }
+            release(delta);
+            release(full);
+            release(text);
+        }
+
+        // a board frame, minus its length, as a datagram; one that fails to go out counts as lost
+        private void sendDatagram(SharedFrame frame, SocketAddress to) {
+            ByteBuffer buffer = frame.buffer();
+            try {
+                udp.send(buffer.array(), Protocol.LENGTH_BYTES, buffer.position() - Protocol.LENGTH_BYTES, to);
+            } catch (IOException e) {
+                System.err.println("Error sending datagram: " + e.getMessage());
+            }
+        }
+
+        // a board datagram from this player, on the UDP thread: kept if newer than the board the
+        // server has and passed on, and a repeat of that board is passed on again for receivers
+        // that lost the first copy; older ones arrived out of order and are dropped
+        private void receiveSnapshot(ByteBuffer datagram) {
+            int frameSeq = datagram.getShort() & 0xFFFF;
+            int frameWidth = datagram.get() & 0xFF;
+            int frameHeight = datagram.get() & 0xFF;
+            if (datagram.remaining() != Protocol.packedSize(frameWidth * frameHeight)) return;
+            boardLock.lock();
+            try {
+                boolean sameBoard = hasBoard && frameWidth == width && frameHeight == height;
+                if (sameBoard && frameSeq == seq) {
+                    broadcastBoard(0, true);
+                    return;
+                }
+                if (sameBoard && !Protocol.isNewer(frameSeq, seq)) return;
+                if (cells.length != frameWidth * frameHeight) {
+                    hasBoard = false;
+                    cells = new byte[frameWidth * frameHeight];
+                }
+                Protocol.unpackCells(datagram, cells);
+                width = frameWidth;
+                height = frameHeight;
+                seq = frameSeq;
+                hasBoard = true;
+                broadcastBoard(0, false);
+            } finally {
+                boardLock.unlock();
+            }
+        }
+
+        // authoritative mode: queues the inputs for the room's next step; ones sent before the match
+        // started are dropped
+        private void simulateInputs(ByteBuffer frame) {
+            frame.getShort();
+            frame.getShort(); // TCP keeps them in order
+            int count = Math.min(frame.get() & 0xFF, frame.remaining());
+            Simulation current = simulation;
+            if (current != null) {
+                current.queue(frame, count);
+            }
+        }
+
+        // authoritative mode, on the room's worker thread after a step changed this player's game:
+        // the player gets the whole game, the others the rows of the board that changed
+        private void publishSimulation() {
+            GameEngine engine = simulation.engine();
+            int boardWidth = engine.getPlayfield().getWidth();
+            int boardHeight = engine.getPlayfield().getHeight();
+            boardLock.lock();
+            try {
+                if (cells.length != boardWidth * boardHeight) {
+                    cells = new byte[boardWidth * boardHeight];
+                    simulatedCells = new byte[boardWidth * boardHeight];
+                    hasBoard = false;
+                }
+                engine.writeBoard(simulatedCells);
+                int rows = 0;
+                for (int y = 0; y < boardHeight; y++) {
+                    int from = y * boardWidth;
+                    if (!Arrays.equals(simulatedCells, from, from + boardWidth, cells, from, from + boardWidth)) {
+                        System.arraycopy(simulatedCells, from, cells, from, boardWidth);
+                        changedRows[rows++] = y;
+                    }
+                }
+                boolean first = !hasBoard;
+                width = boardWidth;
+                height = boardHeight;
+                hasBoard = true;
+                // only a board that others see changed moves the sequence their deltas follow
+                if (first || rows > 0) {
+                    seq = Protocol.nextSeq(seq);
+                    broadcastBoard(first ? 0 : rows, false);
+                }
+                sendTo(this, encodeGameState(engine));
+            } finally {
+                boardLock.unlock();
+            }
+        }
+
+        // a newcomer has not seen anyone's board yet
+        private void sendExistingBoards() {
+            for (ClientHandler client : room.members.values()) {
+                if (client != this) {
+                    sendBoardOf(client);
+                }
+            }
+        }
+
+        // sends the board the server holds for owner, or asks owner for one; lockstep players
+        // never send boards, so their answer is a SYNC that goes to everyone
+        private void sendBoardOf(ClientHandler owner) {
+            owner.boardLock.lock();
+            try {
+                if (owner.hasBoard) {
+                    sendTo(this, encodeBoard(owner, binary));
+                    return;
+                }
+            } finally {
+                owner.boardLock.unlock();
+            }
+            if (owner.lockstep) {
+                sendTo(owner, encodeKeyframeRequest());
+            }
+        }
+
+        // lockstep frames are passed on untouched apart from the sender's id; the server keeps no
+        // state for them and text clients, which cannot replay inputs, do not get them
+        private void relay(byte type, ByteBuffer frame) {
+            frame.getShort();
+            if (type == Protocol.SYNC) {
+                lockstep = true;
+            }
+            SharedFrame relayed = null;
+            for (ClientHandler client : room.members.values()) {
+                if (client != this && client.binary) {
+                    if (relayed == null) {
+                        relayed = SharedFrame.acquire(Short.BYTES + frame.remaining());
+                        ByteBuffer buffer = relayed.buffer();
+                        Protocol.begin(buffer, type);
+                        buffer.putShort((short) playerId);
+                        buffer.put(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+                        Protocol.finish(buffer);
+                    }
+                    client.send(relayed);
+                }
+            }
+            release(relayed);
+        }
+
+        private void handleLine(String line) {
+            // Latency probes go straight back to the sender
+            if (line.startsWith("PING:")) {
+                try {
+                    sendTo(this, encodePong(Long.parseLong(line.substring("PING:".length())), false));
+                } catch (NumberFormatException e) {
+                    System.err.println("Malformed ping from " + playerId + ": " + line);
+                }
+                return;
+            }
+            if (authoritative) return;
+            // Handle game state updates
+            // text senders have no sequence numbers, the server numbers their boards itself
+            int count = Protocol.countCells(line);
+            boardLock.lock();
+            try {
+                if (cells.length != count) {
+                    cells = new byte[count];
+                    hasBoard = false;
+                }
+                if (count % TEXT_BOARD_WIDTH != 0 || !Protocol.parseCells(line, 0, cells)) {
+                    System.err.println("Malformed game state from " + playerId);
+                    hasBoard = false;
+                    return;
+                }
+                width = TEXT_BOARD_WIDTH;
+                height = count / TEXT_BOARD_WIDTH;
+                seq = Protocol.nextSeq(seq);
+                hasBoard = true;
+                broadcastBoard(0, false);
+            } finally {
+                boardLock.unlock();
+            }
+        }
+
+        // sends a message to the room, encoding it at most once per protocol
+        private void broadcast(Encoder encoder, boolean includeSelf) {
+            SharedFrame binaryFrame = null;
+            SharedFrame textFrame = null;
+            for (ClientHandler client : room.members.values()) {
+                if (client == this && !includeSelf) continue;
+                if (client.binary) {
+                    if (binaryFrame == null) binaryFrame = encoder.encode(true);
+                    client.send(binaryFrame);
+                } else {
+                    if (textFrame == null) textFrame = encoder.encode(false);
+                    client.send(textFrame);
+                }
+            }
+            release(binaryFrame);
+            release(textFrame);
+        }
+
+        // queues a message encoded for one recipient and lets go of it
+        private void sendTo(ClientHandler recipient, SharedFrame frame) {
+            recipient.send(frame);
+            frame.release();
+        }
+
+        private void release(SharedFrame frame) {
+            if (frame != null) {
+                frame.release();
+            }
+        }
+
+        private SharedFrame encodePlayer(byte type, String prefix, boolean forBinary) {
+            if (forBinary) {
+                SharedFrame frame = SharedFrame.acquire(Short.BYTES);
+                Protocol.begin(frame.buffer(), type);
+                frame.buffer().putShort((short) playerId);
+                Protocol.finish(frame.buffer());
+                return frame;
+            }
+            textLine.setLength(0);
+            textLine.append(prefix).append(playerId);
+            return encodeText(textLine);
+        }
+
+        private SharedFrame encodeStart(boolean forBinary) {
+            if (forBinary) {
+                SharedFrame frame = SharedFrame.acquire(0);
+                Protocol.begin(frame.buffer(), Protocol.START);
+                Protocol.finish(frame.buffer());
+                return frame;
+            }
+            textLine.setLength(0);
+            textLine.append("START");
+            return encodeText(textLine);
+        }
+
+        // owner's whole board; called with owner's boardLock held
+        private SharedFrame encodeBoard(ClientHandler owner, boolean forBinary) {
+            if (forBinary) {
+                SharedFrame frame = SharedFrame.acquire(6 + Protocol.packedSize(owner.cells.length));
+                ByteBuffer buffer = frame.buffer();
+                Protocol.begin(buffer, Protocol.STATE);
+                buffer.putShort((short) owner.playerId);
+                buffer.putShort((short) owner.seq);
+                buffer.put((byte) owner.width);
+                buffer.put((byte) owner.height);
+                Protocol.packCells(owner.cells, buffer);
+                Protocol.finish(buffer);
+                return frame.board(owner.playerId, true);
+            }
+            StringBuilder line = owner.boardText;
+            line.setLength(0);
+            line.append("GAME_STATE:").append(owner.playerId).append(':');
+            Protocol.appendCells(line, owner.cells);
+            return encodeText(line).board(owner.playerId, true);
+        }
+
+        // this player's changed rows; called with boardLock held
+        private SharedFrame encodeDelta(int rowCount) {
+            SharedFrame frame = SharedFrame.acquire(7 + rowCount * (1 + Protocol.packedSize(width)));
+            ByteBuffer buffer = frame.buffer();
+            Protocol.begin(buffer, Protocol.DELTA);
+            buffer.putShort((short) playerId);
+            buffer.putShort((short) seq);
+            buffer.put((byte) width);
+            buffer.put((byte) height);
+            buffer.put((byte) rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                buffer.put((byte) changedRows[i]);
+                Protocol.packCells(cells, changedRows[i] * width, width, buffer);
+            }
+            Protocol.finish(buffer);
+            return frame.board(playerId, false);
+        }
+
+        // this player's whole game, for them to show; a newer one replaces it in the queue
+        private SharedFrame encodeGameState(GameEngine engine) {
+            int boardWidth = engine.getPlayfield().getWidth();
+            int boardHeight = engine.getPlayfield().getHeight();
+            SharedFrame frame = SharedFrame.acquire(2 * Short.BYTES + GameEngine.stateSize(boardWidth, boardHeight));
+            ByteBuffer buffer = frame.buffer();
+            Protocol.begin(buffer, Protocol.SYNC);
+            buffer.putShort((short) playerId);
+            buffer.putShort((short) seq);
+            engine.writeState(buffer);
+            Protocol.finish(buffer);
+            return frame.board(playerId, true);
+        }
+
+        // asks a client for a full board of its own
+        private SharedFrame encodeKeyframeRequest() {
+            SharedFrame frame = SharedFrame.acquire(Short.BYTES);
+            Protocol.begin(frame.buffer(), Protocol.KEYFRAME);
+            frame.buffer().putShort((short) 0);
+            Protocol.finish(frame.buffer());
+            return frame;
+        }
+
+        private SharedFrame encodePong(long timestamp, boolean forBinary) {
+            if (forBinary) {
+                SharedFrame frame = SharedFrame.acquire(Long.BYTES);
+                Protocol.begin(frame.buffer(), Protocol.PONG);
+                frame.buffer().putLong(timestamp);
+                Protocol.finish(frame.buffer());
+                return frame;
+            }
+            textLine.setLength(0);
+            textLine.append("PONG:").append(timestamp);
+            return encodeText(textLine);
+        }
+
+        private SharedFrame encodeText(CharSequence line) {
+            SharedFrame frame = SharedFrame.acquire(line.length());
+            Protocol.encodeLine(line, frame.buffer());
+            return frame;
+        }
+
+        private void cleanup() {
+            clients.remove(playerId);
+            Room left = room;
+            if (left != null) {
+                left.remove(this);
+                broadcast(forBinary -> encodePlayer(Protocol.LEFT, "PLAYER_LEFT:", forBinary), false);
+            }
+            drop(null);
+            try {
+                if (in != null) in.close();
+            } catch (IOException e) {
+                System.err.println("Error during cleanup: " + e.getMessage());
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        GameServer server = new GameServer();
+        server.start();
+    }
+}
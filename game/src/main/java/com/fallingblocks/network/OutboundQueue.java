@@ -0,0 +1,133 @@
+package com.fallingblocks.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Messages waiting for one client's writer thread, in a fixed ring. Senders never block on a
+// slow client: a whole board drops the boards of the same player still waiting, and a queue that
+// fills up, or whose writer has taken nothing for too long while messages wait, reports the client
+// as too slow.
+final class OutboundQueue {
+    private final SharedFrame[] frames;
+    private final long maxDelayNanos;
+    // when the writer last took a frame, or the queue last stopped being empty
+    private long progressAt;
+    private int head;
+    private int count;
+    private boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    OutboundQueue(int capacity, long maxDelayMillis) {
+        frames = new SharedFrame[capacity];
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    }
+
+    // queues the frame behind everything else; false when the client cannot keep up
+    boolean offer(SharedFrame frame) {
+        return add(frame, false);
+    }
+
+    // queues the frame ahead of everything else, for the handshake reply
+    boolean offerFirst(SharedFrame frame) {
+        return add(frame, true);
+    }
+
+    private boolean add(SharedFrame frame, boolean first) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (closed) return true;
+            if (count > 0 && now - progressAt > maxDelayNanos) {
+                return false;
+            }
+            if (frame.isFullBoard()) {
+                dropBoardsOf(frame.boardOf());
+            }
+            if (count == frames.length) {
+                return false;
+            }
+            if (count == 0) {
+                progressAt = now;
+            }
+            frame.retain();
+            int index;
+            if (first) {
+                head = (head + frames.length - 1) % frames.length;
+                index = head;
+            } else {
+                index = (head + count) % frames.length;
+            }
+            frames[index] = frame;
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // removes the queued boards of a player, keeping the order of everything else
+    private void dropBoardsOf(int playerId) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            SharedFrame frame = frames[(head + i) % frames.length];
+            if (frame.boardOf() == playerId) {
+                frame.release();
+                continue;
+            }
+            frames[(head + kept) % frames.length] = frame;
+            kept++;
+        }
+        for (int i = kept; i < count; i++) {
+            frames[(head + i) % frames.length] = null;
+        }
+        count = kept;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the next frame, waiting for one; null once closed. The caller owns a reference to release.
+    SharedFrame take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == 0 && !closed) {
+                notEmpty.await();
+            }
+            if (count == 0) return null;
+            progressAt = System.nanoTime();
+            SharedFrame frame = frames[head];
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            count--;
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // drops whatever is still queued and wakes the writer so it can finish
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            while (count > 0) {
+                frames[head].release();
+                frames[head] = null;
+                head = (head + 1) % frames.length;
+                count--;
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
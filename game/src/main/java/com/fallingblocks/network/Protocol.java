@@ -0,0 +1,304 @@
+package com.fallingblocks.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Wire format shared by GameClient and GameServer.
+//
+// A connection starts in text: the client sends HELLO:BINARY or HELLO:TEXT, optionally followed
+// by the room to join (see GameServer), and the server answers
+// WELCOME:<mode>:<player id>:<room id>:<room capacity>. After that a binary connection carries
+// frames of [u16 length][u8 type][payload], the length counting the type byte and payload; a text
+// connection keeps the original newline separated messages. Player ids are small numbers and boards travel
+// as 4-bit cells, two per byte, row by row (about 100 bytes for a 10x20 board).
+//
+// Boards are sent as a full STATE keyframe or as a DELTA of the rows that changed since the
+// sender's previous message. Each carries a u16 sequence number; TCP delivers in order, so the
+// previous message is the one the receiver has. A receiver that misses a base (it joined late or
+// the sequence jumps) drops the delta and sends KEYFRAME for that player.
+//
+// In lockstep mode a client sends no boards at all. It sends a SYNC of its whole game state, seed
+// included, when the game starts and whenever one is asked for, and from then on only INPUTS:
+// the inputs and gravity ticks it applied, in order. Peers replay them on their own copy of the
+// engine. Every so often a CHECK carries a hash of the sender's state so a peer that drifted can
+// ask for a SYNC with KEYFRAME.
+//
+// A server started with UDP adds :UDP:<token> to the WELCOME of binary clients. Such a client may
+// send UDP_HELLO datagrams to the same port until one comes back, after which its boards travel as
+// STATE datagrams (a frame without the length) in both directions instead of over TCP. Datagrams
+// get lost and reordered, so every one is a whole board and a receiver keeps only those with a
+// newer sequence number than it has. Joins, leaves, the start and lockstep frames stay on TCP.
+//
+// A server started in authoritative mode adds :AUTHORITATIVE to the WELCOME of binary clients. It
+// runs every player's game itself: clients send only INPUTS, without gravity ticks, and get their
+// own game back as SYNC frames; everyone gets everyone else's boards as STATE and DELTA. Boards,
+// SYNCs and ticks that clients send are ignored. Text clients can only watch.
+public final class Protocol {
+    // the port GameServer listens on and GameClient connects to
+    public static final int DEFAULT_PORT = 5000;
+
+    public static final String HELLO = "HELLO";
+    public static final String WELCOME = "WELCOME";
+    public static final String BINARY = "BINARY";
+    public static final String TEXT = "TEXT";
+    // HELLO:<mode>:NEW:<capacity> asks for a room of its own
+    public static final String NEW_ROOM = "NEW";
+    // sent instead of WELCOME when the requested room is missing or full, before hanging up
+    public static final String REFUSED = "REFUSED";
+    // WELCOME suffixes: board datagrams offered, and the server runs the games
+    public static final String UDP = "UDP";
+    public static final String AUTHORITATIVE = "AUTHORITATIVE";
+
+    // frame types
+    public static final byte JOINED = 1;   // u16 player id
+    public static final byte LEFT = 2;     // u16 player id
+    public static final byte START = 3;    // no payload
+    public static final byte STATE = 4;    // u16 player id (0 from clients), u16 seq, u8 width, u8 height, packed cells
+    public static final byte PING = 5;     // i64 sender timestamp
+    public static final byte PONG = 6;     // i64 timestamp echoed back
+    public static final byte DELTA = 7;    // u16 player id, u16 seq, u8 width, u8 height, u8 rows, per row: u8 index, packed row
+    public static final byte KEYFRAME = 8; // u16 player id whose full board is wanted (0 from the server: yours)
+    public static final byte INPUTS = 9;   // u16 player id, u16 seq, u8 count, count events (Input ordinal or TICK_EVENT)
+    public static final byte CHECK = 10;   // u16 player id, u16 seq of the INPUTS it follows, i32 state hash
+    public static final byte SYNC = 11;    // u16 player id, u16 seq, GameEngine state
+    public static final byte UDP_HELLO = 12; // datagram: u16 player id, i32 token from WELCOME; echoed back as the ack
+
+    // a gravity step in an INPUTS frame
+    public static final byte TICK_EVENT = (byte) 0xFF;
+    public static final int MAX_EVENTS = 0xFF;
+
+    public static final int LENGTH_BYTES = Short.BYTES;
+    public static final int MAX_FRAME = 0xFFFF;
+    // datagrams are kept under a typical path MTU
+    public static final int MAX_DATAGRAM = 1200;
+    // the longest text line either end accepts: a GAME_STATE line for the largest board, with a
+    // digit and a comma per cell
+    public static final int MAX_LINE = 64 + 2 * 0xFF * 0xFF;
+    // the largest cell value a board may carry; decoders clamp or reject anything above it
+    public static final int MAX_CELL = 8;
+
+    private Protocol() {
+    }
+
+    // starts a frame in a reused buffer, leaving room for the length
+    public static void begin(ByteBuffer frame, byte type) {
+        frame.clear();
+        frame.position(LENGTH_BYTES);
+        frame.put(type);
+    }
+
+    // fills in the length and writes the frame out
+    public static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        finish(frame);
+        out.write(frame.array(), frame.arrayOffset(), frame.position());
+        out.flush();
+    }
+
+    // fills in the length of a frame that is written out later
+    public static void finish(ByteBuffer frame) {
+        frame.putShort(0, (short) (frame.position() - LENGTH_BYTES));
+    }
+
+    // reads the next frame into a reused buffer, positioned at the type byte; false at end of stream
+    public static boolean receive(DataInputStream in, ByteBuffer frame) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return false;
+        }
+        if (length > frame.capacity()) {
+            throw new IOException("Bad frame length " + length);
+        }
+        readPayload(in, frame, length);
+        return true;
+    }
+
+    // like receive, but starts small and moves to a bigger buffer when a frame does not fit;
+    // returns the buffer holding the frame, null at end of stream
+    public static ByteBuffer receiveResizing(DataInputStream in, ByteBuffer frame) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        if (length > frame.capacity()) {
+            frame = ByteBuffer.allocate(length);
+        }
+        readPayload(in, frame, length);
+        return frame;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return -1;
+        }
+        int length = (first << 8) | in.readUnsignedByte();
+        if (length == 0) {
+            throw new IOException("Bad frame length 0");
+        }
+        return length;
+    }
+
+    private static void readPayload(DataInputStream in, ByteBuffer frame, int length) throws IOException {
+        in.readFully(frame.array(), frame.arrayOffset(), length);
+        frame.clear();
+        frame.limit(length);
+    }
+
+    // a buffer that fits a frame with the given payload, or a line of that many characters:
+    // the same one when it is big enough, otherwise a bigger one to keep from then on
+    public static ByteBuffer ensureCapacity(ByteBuffer frame, int payloadBytes) {
+        int needed = LENGTH_BYTES + 1 + payloadBytes;
+        if (frame.capacity() >= needed) {
+            return frame;
+        }
+        return ByteBuffer.allocate(Math.max(needed, frame.capacity() * 2));
+    }
+
+    // packs color values 0-15, two per byte with the first cell in the low nibble
+    public static void packCells(byte[] cells, ByteBuffer out) {
+        packCells(cells, 0, cells.length, out);
+    }
+
+    public static void packCells(byte[] cells, int from, int count, ByteBuffer out) {
+        int end = from + count;
+        for (int i = from; i < end; i += 2) {
+            int low = cells[i] & 0xF;
+            int high = i + 1 < end ? cells[i + 1] & 0xF : 0;
+            out.put((byte) (low | high << 4));
+        }
+    }
+
+    public static void unpackCells(ByteBuffer in, byte[] cells) {
+        unpackCells(in, cells, 0, cells.length);
+    }
+
+    public static void unpackCells(ByteBuffer in, byte[] cells, int from, int count) {
+        int end = from + count;
+        for (int i = from; i < end; i += 2) {
+            int packed = in.get();
+            cells[i] = (byte) Math.min(packed & 0xF, MAX_CELL);
+            if (i + 1 < end) {
+                cells[i + 1] = (byte) Math.min((packed >> 4) & 0xF, MAX_CELL);
+            }
+        }
+    }
+
+    // the sequence number that follows seq, wrapping at 16 bits
+    public static int nextSeq(int seq) {
+        return (seq + 1) & 0xFFFF;
+    }
+
+    // whether seq comes after than, allowing for wraparound
+    public static boolean isNewer(int seq, int than) {
+        return (short) (seq - than) > 0;
+    }
+
+    public static int packedSize(int cellCount) {
+        return (cellCount + 1) / 2;
+    }
+
+    // whether a DELTA payload, positioned at its row count, holds exactly that many rows of a
+    // width x height board, each one inside it; checked before any row is applied
+    public static boolean isValidDelta(ByteBuffer frame, int width, int height) {
+        if (!frame.hasRemaining()) return false;
+        int start = frame.position();
+        int rows = frame.get(start) & 0xFF;
+        int rowBytes = 1 + packedSize(width);
+        if (frame.remaining() != 1 + rows * rowBytes) return false;
+        for (int i = 0; i < rows; i++) {
+            if ((frame.get(start + 1 + i * rowBytes) & 0xFF) >= height) return false;
+        }
+        return true;
+    }
+
+    // the cells of a text board, comma separated; returns false if there are too few, or one is
+    // above MAX_CELL
+    public static boolean parseCells(String text, int from, byte[] cells) {
+        int cell = 0;
+        int value = 0;
+        boolean digits = false;
+        for (int i = from; i < text.length() && cell < cells.length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > MAX_CELL) {
+                    return false;
+                }
+                digits = true;
+            } else if (c == ',') {
+                cells[cell++] = (byte) value;
+                value = 0;
+                digits = false;
+            } else {
+                return false;
+            }
+        }
+        if (digits && cell < cells.length) {
+            cells[cell++] = (byte) value;
+        }
+        return cell == cells.length;
+    }
+
+    // how many cells a text board holds, with or without a trailing comma
+    public static int countCells(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ',') count++;
+        }
+        return text.isEmpty() || text.endsWith(",") ? count : count + 1;
+    }
+
+    public static void appendCells(StringBuilder text, byte[] cells) {
+        for (byte cell : cells) {
+            text.append(cell).append(',');
+        }
+    }
+
+    // reads one line byte by byte so nothing past it is buffered away from a later binary reader;
+    // returns null at end of stream, and fails on a line longer than MAX_LINE
+    public static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                return trimCarriageReturn(line);
+            }
+            if (line.size() == MAX_LINE) {
+                throw new IOException("Line longer than " + MAX_LINE + " bytes");
+            }
+            line.write(b);
+        }
+        return line.size() == 0 ? null : trimCarriageReturn(line);
+    }
+
+    private static String trimCarriageReturn(ByteArrayOutputStream line) {
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    public static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // writes an ASCII line through a reused buffer (see ensureCapacity) without making a String
+    public static void writeLine(OutputStream out, CharSequence line, ByteBuffer buffer) throws IOException {
+        encodeLine(line, buffer);
+        out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+        out.flush();
+    }
+
+    // puts an ASCII line, newline included, at the start of the buffer
+    public static void encodeLine(CharSequence line, ByteBuffer buffer) {
+        buffer.clear();
+        for (int i = 0; i < line.length(); i++) {
+            buffer.put((byte) line.charAt(i));
+        }
+        buffer.put((byte) '\n');
+    }
+}
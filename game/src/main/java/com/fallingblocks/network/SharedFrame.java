@@ -0,0 +1,74 @@
+package com.fallingblocks.network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One encoded message, binary frame or text line, shared by every client it is queued for.
+// Whoever acquires it holds the first reference; each queue it goes into takes another and lets go
+// once the message is written or dropped. The last release puts it back in the pool, so steady
+// state relaying encodes each message once and allocates nothing.
+final class SharedFrame {
+    private static final int POOL_SIZE = 4096;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final ArrayBlockingQueue<SharedFrame> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private final AtomicInteger refs = new AtomicInteger();
+    // a board (STATE, DELTA or GAME_STATE) of this player, 0 for anything else
+    private int boardOf;
+    // a whole board, which makes any earlier board of the same player still queued pointless
+    private boolean fullBoard;
+
+    private SharedFrame() {
+    }
+
+    // a frame with room for the given payload (or line length), holding one reference
+    static SharedFrame acquire(int payloadBytes) {
+        SharedFrame frame = POOL.poll();
+        if (frame == null) {
+            frame = new SharedFrame();
+        }
+        frame.buffer = Protocol.ensureCapacity(frame.buffer, payloadBytes);
+        frame.buffer.clear();
+        frame.boardOf = 0;
+        frame.fullBoard = false;
+        frame.refs.set(1);
+        return frame;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    // marks the frame as a board of the given player
+    SharedFrame board(int playerId, boolean full) {
+        boardOf = playerId;
+        fullBoard = full;
+        return this;
+    }
+
+    int boardOf() {
+        return boardOf;
+    }
+
+    boolean isFullBoard() {
+        return fullBoard;
+    }
+
+    void retain() {
+        refs.incrementAndGet();
+    }
+
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            POOL.offer(this);
+        }
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+    }
+}
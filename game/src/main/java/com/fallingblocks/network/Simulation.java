@@ -0,0 +1,84 @@
+package com.fallingblocks.network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fallingblocks.engine.GameEngine;
+import com.fallingblocks.engine.Input;
+
+// One player's game as an authoritative server runs it. The player's reader thread queues their
+// inputs; the room's step, on a worker thread, applies them and whatever gravity is due. Queued
+// inputs past MAX_PENDING per step are dropped, so flooding the server gains nothing.
+final class Simulation {
+    private static final Input[] INPUTS = Input.values();
+    private static final int MAX_PENDING = 64;
+    // a step running this late drops the missed gravity instead of catching up in one go
+    private static final int MAX_CATCH_UP_TICKS = 4;
+
+    private final GameEngine engine;
+    private final long gravityNanos;
+    private long nextTickAt;
+    // the game has changed since it was last published, starting with the first step
+    private boolean changed = true;
+    private final ReentrantLock lock = new ReentrantLock();
+    private byte[] pending = new byte[MAX_PENDING];
+    private int pendingCount;
+    // the step's copy of pending, swapped with it so the reader never waits on a step
+    private byte[] applying = new byte[MAX_PENDING];
+
+    Simulation(int width, int height, long seed, long gravityNanos, long now) {
+        this.engine = new GameEngine(width, height, seed);
+        this.gravityNanos = gravityNanos;
+        this.nextTickAt = now + gravityNanos;
+    }
+
+    // reader thread: queues an INPUTS payload of count events; gravity ticks are the server's own
+    // and are skipped, like anything that is not an input
+    void queue(ByteBuffer events, int count) {
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte event = events.get();
+                if (event >= 0 && event < INPUTS.length && pendingCount < MAX_PENDING) {
+                    pending[pendingCount++] = event;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // worker thread: applies the queued inputs, then gravity if it is due; true if the game
+    // changed since the last call that returned true
+    boolean step(long now) {
+        int count;
+        lock.lock();
+        try {
+            byte[] queued = pending;
+            pending = applying;
+            applying = queued;
+            count = pendingCount;
+            pendingCount = 0;
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < count && !engine.isGameOver(); i++) {
+            changed |= engine.step(INPUTS[applying[i]]);
+        }
+        if (now - nextTickAt > MAX_CATCH_UP_TICKS * gravityNanos) {
+            nextTickAt = now;
+        }
+        while (now - nextTickAt >= 0 && !engine.isGameOver()) {
+            engine.tick();
+            changed = true;
+            nextTickAt += gravityNanos;
+        }
+        boolean publish = changed;
+        changed = false;
+        return publish;
+    }
+
+    GameEngine engine() {
+        return engine;
+    }
+}
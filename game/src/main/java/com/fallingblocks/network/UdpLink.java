@@ -0,0 +1,107 @@
+package com.fallingblocks.network;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A datagram socket that can lose and delay what it sends, to try the UDP transport on loopback:
+// -Dfallingblocks.udp.loss=0.2 drops a fifth of outgoing datagrams and
+// -Dfallingblocks.udp.delay=50 holds each back 50 ms, and -Dfallingblocks.udp.jitter=20 adds a
+// random 0 to 20 ms more, reordering some. Both ends read the properties, so set them on either
+// or both.
+final class UdpLink {
+    public static final String LOSS_PROPERTY = "fallingblocks.udp.loss";
+    public static final String DELAY_PROPERTY = "fallingblocks.udp.delay";
+    public static final String JITTER_PROPERTY = "fallingblocks.udp.jitter";
+
+    private final DatagramSocket socket;
+    private final double loss;
+    private final long delayMillis;
+    private final long jitterMillis;
+    // delayed sends, created only when a delay is set
+    private final ScheduledExecutorService delayed;
+    // sends come from many threads on the server
+    private final AtomicLong datagramsSent = new AtomicLong();
+    private final AtomicLong datagramsDropped = new AtomicLong();
+
+    UdpLink(DatagramSocket socket) {
+        this.socket = socket;
+        this.loss = Double.parseDouble(System.getProperty(LOSS_PROPERTY, "0"));
+        this.delayMillis = Long.getLong(DELAY_PROPERTY, 0);
+        this.jitterMillis = Long.getLong(JITTER_PROPERTY, 0);
+        if (loss < 0 || loss > 1) {
+            throw new IllegalArgumentException(LOSS_PROPERTY + " must be between 0 and 1: " + loss);
+        }
+        if (delayMillis > 0 || jitterMillis > 0) {
+            delayed = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "udp-delay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            delayed = null;
+        }
+        if (loss > 0 || delayed != null) {
+            System.out.println("Simulating " + Math.round(loss * 100) + "% datagram loss and " + delayMillis
+                + "+" + jitterMillis + " ms delay");
+        }
+    }
+
+    // sends bytes [offset, offset + length) of data, or pretends to; safe from any thread
+    void send(byte[] data, int offset, int length, SocketAddress to) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (loss > 0 && random.nextDouble() < loss) {
+            datagramsDropped.incrementAndGet();
+            return;
+        }
+        if (delayed == null) {
+            socket.send(new DatagramPacket(data, offset, length, to));
+            datagramsSent.incrementAndGet();
+            return;
+        }
+        // the caller reuses its buffer, so a delayed datagram needs its own copy
+        DatagramPacket packet = new DatagramPacket(Arrays.copyOfRange(data, offset, offset + length), length, to);
+        long delay = delayMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        delayed.schedule(() -> {
+            try {
+                socket.send(packet);
+                datagramsSent.incrementAndGet();
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Error sending datagram: " + e.getMessage());
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // blocks for the next datagram, which fills the packet's buffer
+    void receive(DatagramPacket packet) throws IOException {
+        socket.receive(packet);
+    }
+
+    long getDatagramsSent() {
+        return datagramsSent.get();
+    }
+
+    long getDatagramsDropped() {
+        return datagramsDropped.get();
+    }
+
+    boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    void close() {
+        socket.close();
+        if (delayed != null) {
+            delayed.shutdownNow();
+        }
+    }
+}